@@ -0,0 +1,8 @@
+#!/bin/bash
+# replica 의 복제 접속을 허용하고, 이후 초기화 스크립트(ddl.sql)가 entitymanager 스키마에 테이블을 만들도록 한다.
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-SQL
+    create schema if not exists entitymanager;
+    alter role $POSTGRES_USER set search_path = entitymanager;
+SQL
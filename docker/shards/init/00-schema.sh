@@ -0,0 +1,7 @@
+#!/bin/bash
+# 이후 초기화 스크립트(ddl.sql)가 entitymanager 스키마에 테이블을 만들도록 한다.
+set -e
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-SQL
+    create schema if not exists entitymanager;
+    alter role $POSTGRES_USER set search_path = entitymanager;
+SQL
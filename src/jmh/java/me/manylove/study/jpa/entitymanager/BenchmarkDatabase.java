@@ -0,0 +1,77 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+
+import javax.persistence.EntityManager;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 벤치마크용 H2 메모리 DB (PostgreSQL 호환 모드) 와 SessionFactory.
+ *
+ * Spring 없이 Hibernate 만으로 띄우므로, DB 서버나 네트워크 없이 실행할 수 있다.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static SessionFactory open(String name) {
+        return open(name, new HashMap<>());
+    }
+
+    /**
+     * @param overrides 기본 설정을 덮어쓰거나 더할 Hibernate 설정 (예 : AvailableSettings.DATASOURCE)
+     */
+    static SessionFactory open(String name, Map<String, Object> overrides) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AvailableSettings.URL, url(name));
+        settings.put(AvailableSettings.USER, "sa");
+        settings.put(AvailableSettings.PASS, "");
+        settings.put(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect");
+        settings.put(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        settings.put(AvailableSettings.STATEMENT_BATCH_SIZE, 500);
+        settings.put(AvailableSettings.ORDER_INSERTS, true);
+        settings.put(AvailableSettings.ORDER_UPDATES, true);
+        settings.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+        settings.putAll(overrides);
+
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder().applySettings(settings).build();
+        return new MetadataSources(registry)
+                .addAnnotatedClass(Member.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * count 건의 Member 를 저장하고, 저장한 id 를 반환한다.
+     */
+    static UUID[] seed(SessionFactory sessionFactory, int count) {
+        UUID[] ids = new UUID[count];
+        EntityManager em = sessionFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < count; i++) {
+                ids[i] = UUID.randomUUID();
+                em.persist(new Member(ids[i], "member-" + i));
+                if ((i + 1) % 500 == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        return ids;
+    }
+}
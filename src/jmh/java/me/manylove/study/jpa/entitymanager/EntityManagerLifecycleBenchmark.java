@@ -0,0 +1,214 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chapter 2, 3 에서 살펴본 영속성 컨텍스트 기능별 비용.
+ *
+ * 측정 단위(iteration)마다 EntityManager 와 트랜잭션을 새로 열고, 끝나면 롤백한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntityManagerLifecycleBenchmark {
+
+    private static final int SEEDED = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        SessionFactory sessionFactory;
+        UUID[] ids;
+
+        @Setup(Level.Trial)
+        public void open() {
+            sessionFactory = BenchmarkDatabase.open("lifecycle");
+            ids = BenchmarkDatabase.seed(sessionFactory, SEEDED);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            sessionFactory.close();
+        }
+
+        UUID randomId() {
+            return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        }
+
+        EntityManager begin() {
+            EntityManager em = sessionFactory.createEntityManager();
+            em.getTransaction().begin();
+            return em;
+        }
+
+        static void rollback(EntityManager em) {
+            em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    /**
+     * 비어 있는 영속성 컨텍스트.
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        EntityManager em;
+        int persisted;
+
+        @Setup(Level.Iteration)
+        public void begin(Database database) {
+            em = database.begin();
+        }
+
+        @TearDown(Level.Iteration)
+        public void rollback() {
+            Database.rollback(em);
+        }
+    }
+
+    /**
+     * 1차 캐시에 모든 Member 가 올라와 있는 상태.
+     */
+    @State(Scope.Thread)
+    public static class LoadedSession {
+        EntityManager em;
+
+        @Setup(Level.Iteration)
+        public void begin(Database database) {
+            em = database.begin();
+            em.createQuery("select m from Member m", Member.class).getResultList();
+        }
+
+        @TearDown(Level.Iteration)
+        public void rollback() {
+            Database.rollback(em);
+        }
+    }
+
+    /**
+     * 관리 중인 엔티티가 size 개인 상태. ( clear 할 때마다 다시 채운다 )
+     */
+    @State(Scope.Thread)
+    public static class ClearSession {
+        @Param({"100", "1000", "10000"})
+        int size;
+        EntityManager em;
+
+        @Setup(Level.Iteration)
+        public void begin(Database database) {
+            em = database.begin();
+        }
+
+        @Setup(Level.Invocation)
+        public void load() {
+            em.createQuery("select m from Member m", Member.class).setMaxResults(size).getResultList();
+        }
+
+        @TearDown(Level.Iteration)
+        public void rollback() {
+            Database.rollback(em);
+        }
+    }
+
+    /**
+     * 관리 중인 엔티티 1000 개 중 dirty 개를 수정하고 flush 한다.
+     */
+    @State(Scope.Thread)
+    public static class FlushSession {
+        @Param({"10", "100", "1000"})
+        int dirty;
+        EntityManager em;
+        List<Member> members;
+        int round;
+
+        @Setup(Level.Iteration)
+        public void begin(Database database) {
+            em = database.begin();
+            members = em.createQuery("select m from Member m", Member.class).setMaxResults(1000).getResultList();
+        }
+
+        @TearDown(Level.Iteration)
+        public void rollback() {
+            Database.rollback(em);
+        }
+    }
+
+    @Benchmark
+    public Member persist(Session session) {
+        Member member = new Member(UUID.randomUUID(), "persist");
+        session.em.persist(member);
+        // 쓰기 지연 저장소가 한없이 커지지 않도록 가끔 비운다.
+        if (++session.persisted % 10_000 == 0) {
+            session.em.clear();
+        }
+        return member;
+    }
+
+    /**
+     * persist 직후 detach. persist 결과와의 차이가 detach 비용이다.
+     */
+    @Benchmark
+    public Member detach(Session session) {
+        Member member = new Member(UUID.randomUUID(), "detach");
+        session.em.persist(member);
+        session.em.detach(member);
+        return member;
+    }
+
+    @Benchmark
+    public Member findHit(Database database, LoadedSession session) {
+        return session.em.find(Member.class, database.randomId());
+    }
+
+    /**
+     * 1차 캐시에 없는 Member 조회. (SELECT 발생) 다음 호출도 miss 가 되도록 detach 한다.
+     */
+    @Benchmark
+    public Member findMiss(Database database, Session session) {
+        Member member = session.em.find(Member.class, database.randomId());
+        session.em.detach(member);
+        return member;
+    }
+
+    @Benchmark
+    public Member mergeExisting(Database database, Session session) {
+        Member merged = session.em.merge(new Member(database.randomId(), "merged"));
+        session.em.detach(merged);
+        return merged;
+    }
+
+    @Benchmark
+    public Member mergeNew(Session session) {
+        Member merged = session.em.merge(new Member(UUID.randomUUID(), "merged"));
+        session.em.detach(merged);
+        return merged;
+    }
+
+    @Benchmark
+    public void clear(ClearSession session) {
+        session.em.clear();
+    }
+
+    @Benchmark
+    public void flush(FlushSession session) {
+        String name = "flush-" + session.round++;
+        for (int i = 0; i < session.dirty; i++) {
+            session.members.get(i).setName(name);
+        }
+        session.em.flush();
+    }
+}
@@ -0,0 +1,84 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * id 목록 조회 : em.find 반복 vs MemberRepository.findAllByIds
+ *
+ * 매 호출 전에 1차 캐시를 비우므로 모든 id 가 DB 에서 조회된다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MemberMultiLoadBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int count;
+
+    SessionFactory sessionFactory;
+    UUID[] seeded;
+    List<UUID> ids;
+    EntityManager em;
+    MemberRepository repository;
+
+    @Setup(Level.Trial)
+    public void open() {
+        sessionFactory = BenchmarkDatabase.open("multiload");
+        seeded = BenchmarkDatabase.seed(sessionFactory, 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        sessionFactory.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void begin() {
+        List<UUID> shuffled = new ArrayList<>(Arrays.asList(seeded));
+        Collections.shuffle(shuffled);
+        ids = shuffled.subList(0, count);
+        em = sessionFactory.createEntityManager();
+        em.getTransaction().begin();
+        repository = new MemberRepository(em, 500);
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public List<Member> findLoop() {
+        em.clear();
+        List<Member> members = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            members.add(em.find(Member.class, id));
+        }
+        return members;
+    }
+
+    @Benchmark
+    public List<Member> findAllByIds() {
+        em.clear();
+        return repository.findAllByIds(ids);
+    }
+}
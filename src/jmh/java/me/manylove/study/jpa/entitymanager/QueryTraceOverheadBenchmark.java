@@ -0,0 +1,114 @@
+package me.manylove.study.jpa.entitymanager;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManager;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 쿼리 로그 비용 : 로그 없음 vs 쿼리 추적(1%, 100%) vs 기존 SQL/파라미터 로그( sql-debug 프로필 )
+ *
+ * 로그는 모두 build/tmp/jmh-*.log 파일로 쓴다. 매 호출 전에 1차 캐시를 비우므로 find 마다 SELECT 가 실행된다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class QueryTraceOverheadBenchmark {
+
+    @Param({"off", "trace-1%", "trace-100%", "sql-logging"})
+    String mode;
+
+    QueryTracer tracer;
+    SessionFactory sessionFactory;
+    UUID[] ids;
+    EntityManager em;
+    int next;
+
+    @Setup(Level.Trial)
+    public void open() {
+        LoggerContext loggers = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggers.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        tracer = new QueryTracer(mode.startsWith("trace"), mode.equals("trace-100%") ? 1.0 : 0.01, 8192);
+        Map<String, Object> settings = new HashMap<>();
+        if (mode.equals("sql-logging")) {
+            settings.put(AvailableSettings.FORMAT_SQL, true);
+            logToFile(loggers, "org.hibernate.SQL", ch.qos.logback.classic.Level.DEBUG, "jmh-sql-logging.log");
+            logToFile(loggers, "org.hibernate.type", ch.qos.logback.classic.Level.TRACE, "jmh-sql-logging.log");
+        } else {
+            logToFile(loggers, "member.query-trace", ch.qos.logback.classic.Level.INFO, "jmh-query-trace.log");
+        }
+
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL(BenchmarkDatabase.url("querytrace"));
+        h2.setUser("sa");
+        settings.put(AvailableSettings.DATASOURCE, new QueryTracingDataSource(h2, tracer));
+        sessionFactory = BenchmarkDatabase.open("querytrace", settings);
+        ids = BenchmarkDatabase.seed(sessionFactory, 1_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws InterruptedException {
+        sessionFactory.close();
+        tracer.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void begin() {
+        em = sessionFactory.createEntityManager();
+        em.getTransaction().begin();
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public Member find() {
+        em.clear();
+        next = (next + 1) % ids.length;
+        return em.find(Member.class, ids[next]);
+    }
+
+    private static void logToFile(LoggerContext loggers, String name, ch.qos.logback.classic.Level level, String file) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggers);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %5p [%t] %logger{39} : %m%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(loggers);
+        appender.setFile("build" + File.separator + "tmp" + File.separator + file);
+        appender.setEncoder(encoder);
+        appender.start();
+
+        Logger logger = loggers.getLogger(name);
+        logger.setLevel(level);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+    }
+}
@@ -0,0 +1,20 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * spring.datasource.hikari.maximum-pool-size 를 지정하지 않았을 때 풀 크기를 정하는 설정 ( member.pool.* )
+ * HikariPoolSizer 가 BeanPostProcessor 이므로 빈으로 등록하지 않고 Binder 로 직접 읽는다.
+ */
+@Getter @Setter
+@ConfigurationProperties("member.pool")
+public class ConnectionPoolProperties {
+
+    /** DB 서버의 CPU core 수. 애플리케이션 서버가 아니라 DB 서버 기준이다. */
+    private int databaseCores = 4;
+
+    /** 같은 DB 를 쓰는 애플리케이션 인스턴스 수. 전체 커넥션 수를 인스턴스끼리 나눈다. */
+    private int instances = 1;
+}
@@ -2,8 +2,10 @@ package me.manylove.study.jpa.entitymanager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// R2DBC 커넥션 풀은 MemberR2dbcConfig 가 직접 만든다. ( ConnectionFactory 빈이 생기면 JDBC DataSource 자동 구성이 빠진다. )
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class EntitymanagerApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,23 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * spring.main.lazy-initialization=true ( fast-start 프로필 ) 이어도 시작 시 만들어야 하는 빈.
+ *
+ * EntityManagerFactory 까지 늦추면 Hibernate 초기화 비용을 첫 요청이 모두 떠안으므로 시작 시 만든다.
+ * 백그라운드 작업을 하는 빈(write-behind 버퍼, 무효화 publisher)은 빈 정의에 @Lazy(false) 를 붙인다.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FastStartConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter entityManagerFactoryEagerInitialization() {
+        return LazyInitializationExcludeFilter.forBeanTypes(AbstractEntityManagerFactoryBean.class, EntityManagerFactory.class);
+    }
+}
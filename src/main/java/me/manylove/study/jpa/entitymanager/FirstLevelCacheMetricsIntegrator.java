@@ -0,0 +1,44 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * em.find / getReference 가 1차 캐시에서 해결되었는지 센다.
+ *
+ * 기본 LoadEventListener 보다 먼저 실행되어, 조회하려는 키가 이미 영속성 컨텍스트에 있는지만 확인한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class FirstLevelCacheMetricsIntegrator implements Integrator {
+
+    private final PersistenceMetrics metrics;
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        serviceRegistry.getService(EventListenerRegistry.class)
+                .prependListeners(EventType.LOAD, (LoadEventListener) this::onLoad);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private void onLoad(LoadEvent event, LoadEventListener.LoadType loadType) {
+        EventSource session = event.getSession();
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(event.getEntityClassName());
+        EntityKey key = session.generateEntityKey(event.getEntityId(), persister);
+        metrics.recordFirstLevelCache(session.getPersistenceContext().getEntity(key) != null);
+    }
+}
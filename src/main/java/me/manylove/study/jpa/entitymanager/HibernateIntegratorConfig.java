@@ -0,0 +1,28 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 스프링 빈으로 등록된 Hibernate Integrator 를 EntityManagerFactory 에 등록한다.
+ * 이벤트 리스너를 추가할 때는 Integrator 빈을 하나 더 만들면 된다.
+ */
+@Configuration(proxyBeanMethods = false)
+public class HibernateIntegratorConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer integratorCustomizer(ObjectProvider<Integrator> integrators) {
+        return properties -> {
+            List<Integrator> list = integrators.orderedStream().collect(Collectors.toList());
+            properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, (IntegratorProvider) () -> list);
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * spring.datasource.hikari.maximum-pool-size 를 지정하지 않은 경우, DB 서버의 CPU core 수로 풀 크기를 정한다.
+ *
+ * 커넥션 하나는 DB 에서 CPU 하나를 쓰거나 I/O 를 기다리므로, DB 전체에 core * 2 + 1 개 정도가 적당한 출발점이다.
+ * ( PostgreSQL wiki "Number Of Database Connections" ) 풀을 키운다고 처리량이 늘지 않고, 대기만 DB 쪽으로 옮겨 간다.
+ * 이 수는 DB 에 붙는 모든 인스턴스의 합이므로 인스턴스마다 instances 로 나눈 만큼만 연다. ( member.pool.* )
+ * 최소 idle 을 따로 두지 않아 고정 크기 풀로 동작하므로, 부하가 몰릴 때 커넥션을 새로 만드는 지연이 없다.
+ */
+@Component
+public class HikariPoolSizer implements BeanPostProcessor {
+
+    private final boolean configured;
+    private final int poolSize;
+
+    public HikariPoolSizer(Environment environment) {
+        this.configured = Binder.get(environment).bind("spring.datasource.hikari.maximum-pool-size", Integer.class).isBound();
+        this.poolSize = recommendedPoolSize(environment);
+    }
+
+    public static int recommendedPoolSize(Environment environment) {
+        ConnectionPoolProperties properties = Binder.get(environment)
+                .bind("member.pool", ConnectionPoolProperties.class)
+                .orElseGet(ConnectionPoolProperties::new);
+        return recommendedPoolSize(properties.getDatabaseCores(), properties.getInstances());
+    }
+
+    /**
+     * @throws IllegalArgumentException databaseCores 나 instances 가 양수가 아닌 경우
+     */
+    public static int recommendedPoolSize(int databaseCores, int instances) {
+        if (databaseCores < 1 || instances < 1) {
+            throw new IllegalArgumentException("member.pool.database-cores and member.pool.instances must be positive");
+        }
+        int total = databaseCores * 2 + 1;
+        return Math.max(1, (total + instances - 1) / instances);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (!configured && bean instanceof HikariDataSource) {
+            ((HikariDataSource) bean).setMaximumPoolSize(poolSize);
+        }
+        return bean;
+    }
+}
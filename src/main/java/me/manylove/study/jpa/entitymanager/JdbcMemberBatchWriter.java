@@ -0,0 +1,37 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 모은 이름 변경을 트랜잭션 하나에서 JDBC batch UPDATE 로 쓰고, 커밋 후 2차 캐시에서 제거한다.
+ * 없는 id 는 무시한다.
+ */
+@RequiredArgsConstructor
+public class JdbcMemberBatchWriter implements MemberBatchWriter {
+
+    static final String UPDATE_SQL = "update member set name = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final MemberCacheInvalidator cacheInvalidator;
+    private final int batchSize;
+
+    @Override
+    public void write(Map<UUID, String> names) {
+        List<Map.Entry<UUID, String>> updates = new ArrayList<>(names.entrySet());
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, batchSize, (statement, update) -> {
+                statement.setString(1, update.getValue());
+                statement.setObject(2, update.getKey());
+            });
+            cacheInvalidator.evictNowAndAfterCompletion(names.keySet());
+        });
+    }
+}
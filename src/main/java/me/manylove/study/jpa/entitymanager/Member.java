@@ -4,11 +4,28 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLockType;
+import org.hibernate.annotations.OptimisticLocking;
+
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
 import java.util.UUID;
 
+/**
+ * 낙관적 잠금 : 변경 감지로 UPDATE 할 때 바뀐 컬럼의 조회 시점 값을 조건에 넣는다. ( update member set name=? where id=? and name=? )
+ * 그 사이 다른 트랜잭션이 같은 값을 바꿨으면 수정된 행이 없으므로 커밋이 OptimisticLockException 으로 실패한다. (재시도 : RetryingTransactionExecutor)
+ *
+ * version 컬럼(@Version) 대신 사용하는 이유 : id 만 지정한 새 객체를 merge 하는 흐름(Chapter 3)에서 version 이 없는 객체는
+ * 새 엔티티(INSERT)로, version 이 오래된 객체는 충돌로 처리되기 때문이다. JDBC 로 직접 쓰는 경로(upsert, COPY, write-behind)는 검사하지 않는다.
+ */
 @Entity
+@DynamicUpdate
+@OptimisticLocking(type = OptimisticLockType.DIRTY)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = MemberCacheConfig.REGION)
 @Getter @Setter
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,4 +34,15 @@ public class Member {
     @Id
     private UUID id;
     private String name;
+
+    /**
+     * id 없이 저장하면 시간 순서 UUID 를 부여한다.
+     * 호출자가 id 를 지정해서 persist/merge 하는 흐름(Chapter 1~3)이 그대로 동작해야 하므로 @GeneratedValue 대신 콜백을 사용한다.
+     */
+    @PrePersist
+    void assignIdIfAbsent() {
+        if (id == null) {
+            id = TimeOrderedUuidGenerator.next();
+        }
+    }
 }
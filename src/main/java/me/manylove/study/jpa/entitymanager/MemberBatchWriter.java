@@ -0,0 +1,16 @@
+package me.manylove.study.jpa.entitymanager;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * MemberWriteBehindBuffer 가 모은 변경을 DB 에 쓴다.
+ */
+@FunctionalInterface
+public interface MemberBatchWriter {
+
+    /**
+     * @param names id 별 마지막 이름. 실패하면 예외를 던지고, 버퍼는 다음 주기에 다시 시도한다.
+     */
+    void write(Map<UUID, String> names);
+}
@@ -0,0 +1,66 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 대량의 Member 를 chunk 단위로 영속화 한다.
+ *
+ * chunk 크기만큼 persist 한 뒤 flush(JDBC batch INSERT) 와 clear 를 반복하므로,
+ * 영속성 컨텍스트(1차 캐시, 스냅샷)가 chunk 크기 이상으로 커지지 않는다.
+ * clear 는 호출한 쪽 트랜잭션의 영속성 컨텍스트 전체에 적용되므로, 호출 전에 관리하던 엔티티는 준영속 상태가 된다.
+ */
+@Service
+public class MemberBulkService {
+
+    private final EntityManager em;
+    private final int chunkSize;
+
+    public MemberBulkService(EntityManager em, @Value("${member.bulk.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("member.bulk.chunk-size must be positive: " + chunkSize);
+        }
+        this.em = em;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * stream 의 Member 를 모두 영속화 하고, 저장한 건수를 반환한다.
+     * stream 을 닫는 것은 호출한 쪽의 책임이다.
+     */
+    @Transactional
+    public long persistAll(Stream<Member> members) {
+        return persistAll(members.iterator());
+    }
+
+    @Transactional
+    public long persistAll(Iterator<Member> members) {
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+
+        // 이전에 쌓여 있던 변경 내용이 clear 로 사라지지 않도록 먼저 반영한다.
+        em.flush();
+        session.setJdbcBatchSize(chunkSize);
+        try {
+            long count = 0;
+            while (members.hasNext()) {
+                em.persist(members.next());
+                if (++count % chunkSize == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+            em.clear();
+            return count;
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+    }
+}
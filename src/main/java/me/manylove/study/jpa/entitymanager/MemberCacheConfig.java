@@ -0,0 +1,69 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Member 엔티티의 2차 캐시(Hibernate JCache region) 구성.
+ *
+ * 트랜잭션이 끝나면 사라지는 1차 캐시와 달리, 2차 캐시는 EntityManagerFactory 단위로 공유된다.
+ * READ_WRITE 전략이므로 수정/삭제가 커밋되기 전까지는 해당 항목을 잠가 두고, 커밋 후에 갱신/제거한다.
+ * 제거 정책은 Caffeine 의 W-TinyLFU 로, 한번 읽히고 마는 대량 조회가 자주 읽히는 항목을 밀어내지 않는다.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(MemberCacheProperties.class)
+public class MemberCacheConfig {
+
+    public static final String REGION = "member";
+
+    /**
+     * 테스트처럼 한 JVM 에 컨텍스트가 여러 개 뜨는 경우에도 캐시가 섞이지 않도록, 컨텍스트마다 별도의 CacheManager 를 만든다.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager memberCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        return provider.getCacheManager(URI.create("member-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+    }
+
+    @Bean
+    public Cache<Object, Object> memberCache(CacheManager memberCacheManager, MemberCacheProperties properties) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(properties.getMaximumSize()));
+        configuration.setExpireAfterWrite(OptionalLong.of(properties.getTimeToLive().toNanos()));
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return memberCacheManager.createCache(REGION, configuration);
+    }
+
+    /**
+     * memberCache 를 인자로 받아서, Hibernate 가 region 을 찾기 전에 캐시가 먼저 만들어지도록 한다.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer memberCacheHibernateCustomizer(CacheManager memberCacheManager, Cache<Object, Object> memberCache) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, memberCacheManager);
+    }
+
+    /**
+     * cache.gets(hit/miss), cache.puts, cache.evictions, cache.removals ( tag cache=member )
+     */
+    @Bean
+    public MeterBinder memberCacheMetrics(Cache<Object, Object> memberCache) {
+        return new JCacheMetrics<>(memberCache, Tags.empty());
+    }
+}
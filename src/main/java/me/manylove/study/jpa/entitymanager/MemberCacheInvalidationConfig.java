@@ -0,0 +1,36 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * 여러 인스턴스가 같은 DB 를 쓸 때, 한 인스턴스에서 커밋한 Member 수정/삭제를 PostgreSQL LISTEN/NOTIFY 로
+ * 다른 인스턴스에 알려 각자의 2차 캐시에서 해당 id 만 제거하게 한다. ( member.cache.invalidation.enabled=true )
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.cache.invalidation", name = "enabled", havingValue = "true")
+public class MemberCacheInvalidationConfig {
+
+    @Bean(destroyMethod = "close")
+    @Lazy(false)
+    public MemberInvalidationPublisher memberInvalidationPublisher(DataSource dataSource, MemberCacheProperties properties) {
+        MemberCacheProperties.Invalidation invalidation = properties.getInvalidation();
+        return new MemberInvalidationPublisher(dataSource, invalidation.getChannel(),
+                invalidation.getFlushInterval(), invalidation.getMaxPendingIds());
+    }
+
+    @Bean
+    public MemberInvalidationListener memberInvalidationListener(DataSourceProperties dataSourceProperties,
+                                                                 EntityManagerFactory emf,
+                                                                 MemberCacheProperties properties,
+                                                                 MemberInvalidationPublisher memberInvalidationPublisher) {
+        return new MemberInvalidationListener(dataSourceProperties, emf,
+                properties.getInvalidation().getChannel(), memberInvalidationPublisher.getNodeId());
+    }
+}
@@ -0,0 +1,66 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hibernate 를 거치지 않고(JDBC, COPY 등) 변경한 Member 를 2차 캐시에서 제거한다.
+ *
+ * 변경한 트랜잭션 안의 조회가 이전 값을 캐시에서 읽지 않도록 바로 제거하고, 트랜잭션이 끝나면 한번 더 제거한다.
+ * 커밋 전까지 다른 트랜잭션이 이전 값을, 이 트랜잭션의 조회가 커밋되지 않은 값을 다시 캐시에 올릴 수 있기 때문이다. (롤백되어도 제거)
+ * 트랜잭션 밖에서 호출하면 바로 제거한다. 인스턴스 사이 무효화를 켜 두었다면 커밋된 경우에만 다른 인스턴스에도 알린다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCacheInvalidator {
+
+    private final EntityManagerFactory emf;
+    private final ObjectProvider<MemberInvalidationPublisher> publisher;
+
+    /**
+     * ids 를 지금 제거하고, 트랜잭션이 끝나면(롤백 포함) 한번 더 제거한다.
+     */
+    public void evictNowAndAfterCompletion(Collection<UUID> ids) {
+        List<UUID> evicting = new ArrayList<>(ids);
+        Runnable eviction = () -> evicting.forEach(id -> emf.getCache().evict(Member.class, id));
+        eviction.run();
+        afterCompletion(eviction, () -> publisher.ifAvailable(p -> p.publish(evicting)));
+    }
+
+    /**
+     * Member region 전체를 지금 비우고, 트랜잭션이 끝나면(롤백 포함) 한번 더 비운다.
+     */
+    public void evictAllNowAndAfterCompletion() {
+        Runnable eviction = () -> emf.getCache().evict(Member.class);
+        eviction.run();
+        afterCompletion(eviction, () -> publisher.ifAvailable(MemberInvalidationPublisher::publishAll));
+    }
+
+    /**
+     * 트랜잭션이 끝나면 커밋 여부와 관계없이 eviction 을, 커밋된 경우에만 publication 을 실행한다.
+     */
+    private void afterCompletion(Runnable eviction, Runnable publication) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publication.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                eviction.run();
+                if (status == STATUS_COMMITTED) {
+                    publication.run();
+                }
+            }
+        });
+    }
+}
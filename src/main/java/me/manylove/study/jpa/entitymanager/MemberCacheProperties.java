@@ -0,0 +1,42 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Member 2차 캐시 설정 ( member.cache.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.cache")
+public class MemberCacheProperties {
+
+    /** 캐시에 보관할 최대 엔티티 수. 넘치면 W-TinyLFU 정책으로 제거한다. */
+    private long maximumSize = 10_000;
+
+    /** 캐시에 저장된 후 만료되기까지의 시간. */
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+    private final Invalidation invalidation = new Invalidation();
+
+    /**
+     * 인스턴스 사이의 캐시 무효화 ( member.cache.invalidation.* )
+     */
+    @Getter @Setter
+    public static class Invalidation {
+
+        /** 커밋된 수정/삭제를 LISTEN/NOTIFY 로 다른 인스턴스에 알려 캐시에서 제거하게 한다. */
+        private boolean enabled = false;
+
+        /** NOTIFY 채널 이름. 같은 DB 를 쓰는 인스턴스끼리 같아야 한다. */
+        private String channel = "member_invalidation";
+
+        /** 변경된 id 를 모았다가 한번에 알리는 주기. */
+        private Duration flushInterval = Duration.ofMillis(50);
+
+        /** 한 주기에 모으는 최대 id 수. 넘치면 id 대신 region 전체를 제거하라고 알린다. */
+        private int maxPendingIds = 10_000;
+    }
+}
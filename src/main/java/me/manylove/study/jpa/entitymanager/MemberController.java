@@ -0,0 +1,85 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.OptimisticLockException;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/members")
+@RequiredArgsConstructor
+public class MemberController {
+
+    private final MemberReadService readService;
+    private final MemberSearchService searchService;
+    private final MemberNameService nameService;
+    /** member.sharding.enabled=true 이면 샤드에서 조회한다. */
+    private final ObjectProvider<MemberShards> shards;
+
+    /**
+     * GET /members?size=20&after={이전 응답의 next}
+     */
+    @GetMapping
+    public MemberPage list(@RequestParam(required = false) String after,
+                           @RequestParam(defaultValue = "20") int size) {
+        MemberShards memberShards = shards.getIfAvailable();
+        return memberShards != null ? memberShards.findPage(after, size) : readService.findPage(after, size);
+    }
+
+    /**
+     * GET /members/search?q=영천&limit=20&after={이전 응답의 next}
+     */
+    @GetMapping("/search")
+    public MemberSearchPage search(@RequestParam String q,
+                                   @RequestParam(required = false) String after,
+                                   @RequestParam(defaultValue = "20") int limit) {
+        MemberShards memberShards = shards.getIfAvailable();
+        return memberShards != null ? memberShards.search(q, after, limit) : searchService.search(q, after, limit);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<MemberView> find(@PathVariable UUID id) {
+        MemberShards memberShards = shards.getIfAvailable();
+        return ResponseEntity.of(memberShards != null ? memberShards.findView(id) : nameService.findView(id));
+    }
+
+    /**
+     * PUT /members/{id}/name (Content-Type: text/plain, 본문 : 새 이름)
+     */
+    @PutMapping(path = "/{id}/name", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<Void> rename(@PathVariable UUID id, @RequestBody String name) {
+        return nameService.updateName(id, name) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    /**
+     * 재시도해도 다른 변경과 계속 충돌한 경우 (샤드는 재시도하지 않는다)
+     */
+    @ExceptionHandler({ConcurrencyFailureException.class, OptimisticLockException.class})
+    public ResponseEntity<String> conflict(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> busy(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
@@ -0,0 +1,16 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Value;
+
+/**
+ * COPY 로 적재한 결과
+ */
+@Value
+public class MemberCopyResult {
+    long rows;
+    long elapsedNanos;
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,165 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * member 테이블 전체를 스트리밍으로 내보낸다.
+ *
+ * stateless session 으로 DB cursor 를 열고 fetch size 만큼씩 읽어오므로,
+ * 영속성 컨텍스트에 엔티티가 쌓이지 않고 테이블 크기와 상관없이 메모리 사용량이 일정하다.
+ */
+@Service
+public class MemberExportService {
+
+    private final SessionFactory sessionFactory;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public MemberExportService(EntityManagerFactory emf, ObjectMapper objectMapper,
+                               @Value("${member.export.fetch-size:1000}") int fetchSize) {
+        this.sessionFactory = emf.unwrap(SessionFactory.class);
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * 반환된 Stream 은 DB cursor 와 커넥션을 잡고 있으므로 반드시 닫아야 한다. ( try-with-resources )
+     */
+    public Stream<Member> streamAll() {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            // PostgreSQL 은 autocommit 이 꺼져 있어야 fetch size 단위로 cursor 를 사용한다.
+            Transaction transaction = session.beginTransaction();
+            try {
+                ScrollableResults results = session.createQuery("select m from Member m", Member.class)
+                        .setFetchSize(fetchSize)
+                        .setReadOnly(true)
+                        .scroll(ScrollMode.FORWARD_ONLY);
+
+                Spliterator<Member> spliterator = new Spliterators.AbstractSpliterator<Member>(
+                        Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                    @Override
+                    public boolean tryAdvance(Consumer<? super Member> action) {
+                        if (!results.next()) {
+                            return false;
+                        }
+                        action.accept((Member) results.get(0));
+                        return true;
+                    }
+                };
+                // cursor 를 닫다가 실패해도 롤백한 뒤에 세션(커넥션)을 반납한다.
+                return StreamSupport.stream(spliterator, false).onClose(() -> {
+                    try {
+                        try {
+                            results.close();
+                        } finally {
+                            transaction.rollback();
+                        }
+                    } finally {
+                        session.close();
+                    }
+                });
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 모든 Member 를 순서대로 action 에 전달하고, 전달한 건수를 반환한다.
+     */
+    public long forEach(Consumer<Member> action) {
+        try (Stream<Member> members = streamAll()) {
+            long[] count = {0};
+            members.forEach(member -> {
+                action.accept(member);
+                count[0]++;
+            });
+            return count[0];
+        }
+    }
+
+    /**
+     * id,name 헤더를 포함한 CSV 로 쓴다. out 은 닫지 않는다.
+     */
+    public long writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,name\n");
+        long count = 0;
+        try (Stream<Member> members = streamAll()) {
+            Iterator<Member> iterator = members.iterator();
+            while (iterator.hasNext()) {
+                Member member = iterator.next();
+                writer.write(member.getId().toString());
+                writer.write(',');
+                writeCsvField(writer, member.getName());
+                writer.write('\n');
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * 한 줄에 Member 하나씩 JSON 으로 쓴다. ( newline delimited JSON ) out 은 닫지 않는다.
+     */
+    public long writeNdjson(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Member> members = streamAll();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<Member> iterator = members.iterator();
+            while (iterator.hasNext()) {
+                Member member = iterator.next();
+                generator.writeStartObject();
+                generator.writeStringField("id", member.getId().toString());
+                generator.writeStringField("name", member.getName());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,70 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * NOTIFY 로 주고받는 무효화 메시지.  "{보낸 인스턴스};{id},{id},..."  또는 region 전체이면  "{보낸 인스턴스};*"
+ */
+@Value
+class MemberInvalidation {
+    /** NOTIFY payload 는 8000 bytes 보다 작아야 한다. (id 는 ASCII 이므로 문자 수 = bytes) */
+    static final int MAX_PAYLOAD_LENGTH = 7900;
+    private static final String ALL = "*";
+
+    String nodeId;
+    boolean all;
+    List<UUID> ids;
+
+    /**
+     * ids 를 MAX_PAYLOAD_LENGTH 를 넘지 않는 메시지 여러 개로 나눈다.
+     */
+    static List<String> encode(String nodeId, Collection<UUID> ids) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(MAX_PAYLOAD_LENGTH).append(nodeId).append(';');
+        int header = payload.length();
+        for (UUID id : ids) {
+            if (payload.length() + 37 > MAX_PAYLOAD_LENGTH) {
+                payloads.add(payload.toString());
+                payload.setLength(header);
+            }
+            if (payload.length() > header) {
+                payload.append(',');
+            }
+            payload.append(id);
+        }
+        if (payload.length() > header) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    static String encodeAll(String nodeId) {
+        return nodeId + ';' + ALL;
+    }
+
+    /**
+     * @throws IllegalArgumentException 형식이 맞지 않는 경우
+     */
+    static MemberInvalidation decode(String payload) {
+        int separator = payload.indexOf(';');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid invalidation payload: " + payload);
+        }
+        String nodeId = payload.substring(0, separator);
+        String body = payload.substring(separator + 1);
+        if (ALL.equals(body)) {
+            return new MemberInvalidation(nodeId, true, Collections.emptyList());
+        }
+        List<UUID> ids = new ArrayList<>();
+        for (String id : body.split(",")) {
+            ids.add(UUID.fromString(id));
+        }
+        return new MemberInvalidation(nodeId, false, ids);
+    }
+}
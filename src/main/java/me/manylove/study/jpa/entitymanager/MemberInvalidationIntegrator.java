@@ -0,0 +1,73 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Member 수정/삭제가 커밋되면 다른 인스턴스에 알린다.
+ * JPQL 벌크 UPDATE/DELETE 는 이벤트가 발생하지 않으므로 알리지 않는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "member.cache.invalidation", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class MemberInvalidationIntegrator implements Integrator, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final MemberInvalidationPublisher publisher;
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publisher.publish((UUID) event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publisher.publish((UUID) event.getId());
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return Member.class.equals(persister.getMappedClass());
+    }
+
+    /**
+     * Hibernate 5 에서는 아직 추상 메서드이므로 구현한다. 오타를 고친 requiresPostCommitHandling 을 따른다.
+     */
+    @Deprecated
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+}
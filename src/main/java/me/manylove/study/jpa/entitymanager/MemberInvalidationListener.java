@@ -0,0 +1,133 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+/**
+ * 다른 인스턴스가 보낸 무효화 메시지를 LISTEN 으로 받아, 해당 id 만 2차 캐시에서 제거한다.
+ *
+ * 알림을 기다리는 동안 커넥션을 계속 붙잡고 있으므로 커넥션 풀이 아닌 별도의 커넥션을 사용한다.
+ * 연결이 끊기면 다시 연결하고, 끊긴 동안 받지 못한 알림이 있을 수 있으므로 region 전체를 제거한다.
+ * 자신이 보낸 메시지는 무시한다. (자신의 캐시는 Hibernate 가 커밋 시 이미 갱신했다)
+ * 메시지 하나를 처리하다 실패해도 로그만 남기고 다음 메시지를 받는다.
+ *
+ * [ 남는 경합 ]
+ * 이 노드가 다른 인스턴스의 커밋 전에 DB 에서 읽은 값을, 무효화 메시지로 제거한 뒤에 캐시에 넣을 수 있다.
+ * 그러면 다음 변경이나 member.cache.time-to-live 가 지날 때까지 이전 값을 보여 준다.
+ */
+@Slf4j
+public class MemberInvalidationListener implements SmartLifecycle {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 1000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final EntityManagerFactory emf;
+    private final String channel;
+    private final String nodeId;
+    private volatile boolean running;
+    private Thread thread;
+
+    public MemberInvalidationListener(DataSourceProperties dataSourceProperties, EntityManagerFactory emf,
+                                      String channel, String nodeId) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("member.cache.invalidation.channel must be a lower case identifier: " + channel);
+        }
+        this.dataSourceProperties = dataSourceProperties;
+        this.emf = emf;
+        this.channel = channel;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "member-invalidation-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(POLL_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("listen " + channel);
+                if (reconnecting) {
+                    emf.getCache().evict(Member.class);
+                    reconnecting = false;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            try {
+                                handle(notification.getParameter());
+                            } catch (RuntimeException e) {
+                                log.warn("Failed to apply a member invalidation: {}", notification.getParameter(), e);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the member invalidation listener connection, reconnecting", e);
+                reconnecting = true;
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void handle(String payload) {
+        MemberInvalidation invalidation;
+        try {
+            invalidation = MemberInvalidation.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring a malformed member invalidation: {}", payload);
+            return;
+        }
+        if (nodeId.equals(invalidation.getNodeId())) {
+            return;
+        }
+        if (invalidation.isAll()) {
+            emf.getCache().evict(Member.class);
+        } else {
+            invalidation.getIds().forEach(id -> emf.getCache().evict(Member.class, id));
+        }
+    }
+}
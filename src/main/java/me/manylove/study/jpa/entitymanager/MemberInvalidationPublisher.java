@@ -0,0 +1,120 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 커밋된 Member 변경을 다른 인스턴스에 NOTIFY 로 알린다.
+ *
+ * 변경마다 알리지 않고 flushInterval 동안 id 를 모은다. 같은 id 가 여러 번 바뀌어도 한번만 알리고,
+ * 모은 id 는 8000 bytes 제한에 맞춰 나눈 뒤 쿼리 한번( pg_notify + unnest )으로 보낸다.
+ * 쓰기가 몰려 maxPendingIds 를 넘으면 id 를 버리고 region 전체를 제거하라고 알린다.
+ *
+ * 커밋 후에 알리므로 알리기 전에 인스턴스가 죽으면 다른 인스턴스는 캐시 만료(time-to-live)까지 이전 값을 볼 수 있다.
+ */
+@Slf4j
+public class MemberInvalidationPublisher implements AutoCloseable {
+
+    static final String NOTIFY_SQL = "select pg_notify(?, payload) from unnest(?) as payload";
+
+    @Getter
+    private final String nodeId = UUID.randomUUID().toString();
+    private final DataSource dataSource;
+    private final String channel;
+    private final int maxPendingIds;
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean allPending = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    public MemberInvalidationPublisher(DataSource dataSource, String channel, Duration flushInterval, int maxPendingIds) {
+        this.dataSource = dataSource;
+        this.channel = channel;
+        this.maxPendingIds = maxPendingIds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-invalidation-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void publish(UUID id) {
+        if (pending.size() >= maxPendingIds) {
+            allPending.set(true);
+            return;
+        }
+        pending.add(id);
+    }
+
+    public void publish(Collection<UUID> ids) {
+        ids.forEach(this::publish);
+    }
+
+    public void publishAll() {
+        allPending.set(true);
+    }
+
+    void flush() {
+        boolean all = allPending.getAndSet(false);
+        List<UUID> ids = drain();
+        if (!all && ids.isEmpty()) {
+            return;
+        }
+        List<String> payloads = all
+                ? Collections.singletonList(MemberInvalidation.encodeAll(nodeId))
+                : MemberInvalidation.encode(nodeId, ids);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL)) {
+            statement.setString(1, channel);
+            statement.setArray(2, connection.createArrayOf("text", payloads.toArray()));
+            statement.execute();
+            log.debug("Published {} member invalidation(s) in {} notification(s)", all ? "all" : ids.size(), payloads.size());
+        } catch (SQLException | RuntimeException e) {
+            // 다음 주기에 다시 보낸다.
+            log.warn("Failed to publish member invalidations, retrying later", e);
+            if (all) {
+                allPending.set(true);
+            } else {
+                publish(ids);
+            }
+        }
+    }
+
+    private List<UUID> drain() {
+        List<UUID> ids = new ArrayList<>();
+        for (Iterator<UUID> iterator = pending.iterator(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        return ids;
+    }
+
+    /**
+     * 남은 변경을 알리고 멈춘다.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+}
@@ -0,0 +1,84 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Member 이름 변경과, 아직 반영되지 않은 변경까지 본 단건 조회.
+ *
+ * member.write-behind.enabled=true 이면 변경을 MemberWriteBehindBuffer 에 넣고 바로 반환한다.
+ * 그 사이 DB 와 2차 캐시는 이전 이름이므로 findView 는 버퍼의 이름을 먼저 본다.
+ * 목록(findPage)과 검색은 정렬과 조건이 DB 값을 기준으로 하므로 반영된 뒤에 바뀐다.
+ * 꺼져 있으면 변경 감지로 트랜잭션 안에서 바로 수정한다. 동시에 같은 Member 를 바꿔서 낙관적 잠금에 실패하면 다시 실행한다.
+ *
+ * member.sharding.enabled=true 이면 조회와 같은 샤드에서 바로 수정한다. write-behind 버퍼는 기본 DB 에 쓰므로 사용하지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberNameService {
+
+    private final EntityManager em;
+    private final RetryingTransactionExecutor retryingExecutor;
+    private final MemberReadService readService;
+    private final ObjectProvider<MemberWriteBehindBuffer> writeBehind;
+    private final ObjectProvider<MemberShards> shards;
+
+    /**
+     * id 의 이름을 name 으로 바꾼다. Member 가 없으면 false
+     *
+     * 버퍼에 넣을 때는 트랜잭션 밖에서 기다리므로 버퍼가 가득 차도 커넥션을 잡고 있지 않는다.
+     *
+     * @throws RejectedExecutionException write-behind 버퍼가 가득 찬 경우
+     * @throws ConcurrencyFailureException 최대 실행 횟수까지 다른 변경과 충돌한 경우
+     * @throws OptimisticLockException     샤드에서 수정하다가 다른 변경과 충돌한 경우
+     */
+    public boolean updateName(UUID id, String name) {
+        MemberShards memberShards = shards.getIfAvailable();
+        if (memberShards != null) {
+            return memberShards.inTransaction(session -> {
+                Member member = session.find(id);
+                if (member == null) {
+                    return false;
+                }
+                member.setName(name);
+                return true;
+            });
+        }
+        MemberWriteBehindBuffer buffer = writeBehind.getIfAvailable();
+        if (buffer == null) {
+            Boolean updated = retryingExecutor.execute("member-rename", status -> {
+                Member member = em.find(Member.class, id);
+                if (member == null) {
+                    return false;
+                }
+                member.setName(name);
+                return true;
+            });
+            return Boolean.TRUE.equals(updated);
+        }
+        if (!readService.findView(id).isPresent()) {
+            return false;
+        }
+        buffer.updateName(id, name);
+        return true;
+    }
+
+    public Optional<MemberView> findView(UUID id) {
+        MemberWriteBehindBuffer buffer = writeBehind.getIfAvailable();
+        if (buffer == null) {
+            return readService.findView(id);
+        }
+        // 버퍼는 쓰는 중인 batch 를 커밋될 때까지 보여 주므로, 버퍼를 먼저 보고 없으면 DB 에는 이미 커밋되어 있다.
+        Optional<String> pending = buffer.pendingName(id);
+        Optional<MemberView> view = readService.findView(id);
+        return pending.isPresent() ? view.map(stored -> new MemberView(id, pending.get())) : view;
+    }
+}
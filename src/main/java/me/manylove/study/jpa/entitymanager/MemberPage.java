@@ -0,0 +1,15 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * 이름순 Member 목록의 한 페이지
+ */
+@Value
+public class MemberPage {
+    List<MemberView> content;
+    /** 다음 페이지를 조회할 때 전달하는 값. 마지막 페이지이면 null */
+    String next;
+}
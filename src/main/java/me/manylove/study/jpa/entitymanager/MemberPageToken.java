@@ -0,0 +1,59 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 이전 페이지의 마지막 (name, id). 클라이언트에게는 내용을 알 수 없는 Base64url 문자열로 전달한다.
+ *
+ * [ 1 byte : name 유무 ][ 16 bytes : id ][ UTF-8 name ]
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class MemberPageToken {
+    private static final byte NAMED = 1;
+    private static final byte UNNAMED = 0;
+
+    private final String name;
+    private final UUID id;
+
+    static MemberPageToken after(MemberView last) {
+        return new MemberPageToken(last.getName(), last.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException 이 클래스가 만든 값이 아닌 경우
+     */
+    static MemberPageToken decode(String token) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            byte flag = buffer.get();
+            if (flag != NAMED && flag != UNNAMED) {
+                throw new IllegalArgumentException("Invalid page token: " + token);
+            }
+            UUID id = new UUID(buffer.getLong(), buffer.getLong());
+            String name = flag == NAMED
+                    ? new String(buffer.array(), buffer.position(), buffer.remaining(), StandardCharsets.UTF_8)
+                    : null;
+            return new MemberPageToken(name, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+    }
+
+    String encode() {
+        byte[] name = this.name == null ? new byte[0] : this.name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 16 + name.length)
+                .put(this.name == null ? UNNAMED : NAMED)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .put(name);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
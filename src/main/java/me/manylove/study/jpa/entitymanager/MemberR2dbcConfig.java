@@ -0,0 +1,50 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * member.r2dbc.enabled=true 이면 R2DBC 커넥션 풀과 MemberReactiveRepository 를 만든다.
+ *
+ * 커넥션 풀(ConnectionFactory)은 빈으로 등록하지 않는다.
+ * ConnectionFactory 빈이 있으면 스프링 부트가 JDBC DataSource 를 만들지 않으므로 기존 JPA 구성이 동작하지 않는다.
+ * 같은 이유로 스프링 부트의 R2DBC 자동 구성은 EntitymanagerApplication 에서 제외했다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.r2dbc", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberR2dbcProperties.class)
+public class MemberR2dbcConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberReactiveRepository memberReactiveRepository(MemberR2dbcProperties properties,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             MemberCacheInvalidator cacheInvalidator) {
+        return new MemberReactiveRepository(connectionPool(properties, dataSourceProperties), cacheInvalidator,
+                properties.getFetchSize(), properties.getBatchSize());
+    }
+
+    /**
+     * member.r2dbc.url 에 spring.datasource 의 계정을 적용한 커넥션 풀.
+     */
+    static ConnectionPool connectionPool(MemberR2dbcProperties properties, DataSourceProperties dataSourceProperties) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(properties.getUrl()).mutate()
+                .option(ConnectionFactoryOptions.USER, dataSourceProperties.determineUsername());
+        String password = dataSourceProperties.determinePassword();
+        if (password != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name("member-r2dbc-pool")
+                .initialSize(properties.getInitialSize())
+                .maxSize(properties.getMaxSize())
+                .maxAcquireTime(properties.getMaxAcquireTime())
+                .build());
+    }
+}
@@ -0,0 +1,36 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * R2DBC(논블로킹) Member 저장소 설정 ( member.r2dbc.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.r2dbc")
+public class MemberR2dbcProperties {
+
+    /** MemberReactiveRepository 사용 여부. */
+    private boolean enabled = false;
+
+    /** R2DBC URL. 계정은 spring.datasource 를 따른다. */
+    private String url = "r2dbc:postgresql://localhost:55000/study?schema=entitymanager";
+
+    /** 풀에 처음 만들어 두는 커넥션 수. */
+    private int initialSize = 4;
+
+    /** 최대 커넥션 수. 커넥션을 기다리는 요청은 스레드를 붙잡지 않고 대기열에서 기다린다. */
+    private int maxSize = 16;
+
+    /** 커넥션을 기다리는 최대 시간. */
+    private Duration maxAcquireTime = Duration.ofSeconds(3);
+
+    /** 스트리밍 조회 시 DB 에서 한번에 가져오는 행 수. 구독자가 요청한 만큼 소비해야 다음 묶음을 가져온다. */
+    private int fetchSize = 1000;
+
+    /** insertAll 에서 INSERT 하나로 묶어 보내는 Member 수. */
+    private int batchSize = 500;
+}
@@ -0,0 +1,164 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * R2DBC 로 Member 를 논블로킹으로 읽고 쓴다. ( member.r2dbc.enabled=true )
+ *
+ * JPA 경로(EntityManager, JDBC)는 쿼리가 끝날 때까지 호출한 스레드를 붙잡으므로, 리액티브 코드에서는 별도 스레드 풀로 옮겨서 호출해야 하고
+ * 동시에 처리할 수 있는 요청 수가 그 스레드 수로 제한된다. 여기서는 응답이 올 때 이벤트 루프 스레드가 이어서 처리하므로
+ * 진행 중인 요청마다 스레드가 필요하지 않다.
+ *
+ * 영속성 컨텍스트를 거치지 않으므로 1차 캐시, 변경 감지, 낙관적 잠금이 없다.
+ * 수정/삭제한 Member 는 2차 캐시에서 제거한다. (MemberCacheInvalidator)
+ */
+public class MemberReactiveRepository implements AutoCloseable {
+
+    static final String SELECT_SQL = "select id, name from member";
+    static final String INSERT_SQL = "insert into member (id, name) values ($1, $2)";
+
+    private final ConnectionPool pool;
+    private final MemberCacheInvalidator cacheInvalidator;
+    private final int fetchSize;
+    private final int batchSize;
+
+    public MemberReactiveRepository(ConnectionPool pool, MemberCacheInvalidator cacheInvalidator, int fetchSize, int batchSize) {
+        if (fetchSize < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("fetchSize and batchSize must be positive: " + fetchSize + ", " + batchSize);
+        }
+        this.pool = pool;
+        this.cacheInvalidator = cacheInvalidator;
+        this.fetchSize = fetchSize;
+        this.batchSize = batchSize;
+    }
+
+    public Mono<Member> findById(UUID id) {
+        return Flux.usingWhen(pool.create(),
+                        connection -> Flux.from(connection.createStatement(SELECT_SQL + " where id = $1").bind(0, id).execute())
+                                .concatMap(result -> result.map(MemberReactiveRepository::toMember)),
+                        Connection::close)
+                .next();
+    }
+
+    /**
+     * 모든 Member 를 id 순으로 흘려보낸다.
+     *
+     * DB 에서 fetchSize 만큼씩 가져오고, 구독자가 요청(request)한 만큼 소비해야 다음 묶음을 가져온다.
+     * 따라서 구독자가 느려도 메모리에 쌓이는 행은 fetchSize 정도로 제한된다. 구독을 취소하면 커넥션을 풀에 돌려준다.
+     * 조회가 끝날 때까지 커넥션 하나를 사용한다.
+     */
+    public Flux<Member> findAll() {
+        return Flux.usingWhen(pool.create(),
+                connection -> Flux.from(connection.createStatement(SELECT_SQL + " order by id").fetchSize(fetchSize).execute())
+                        .concatMap(result -> result.map(MemberReactiveRepository::toMember)),
+                Connection::close);
+    }
+
+    /**
+     * id 가 없으면 시간 순서 UUID 를 부여하고 저장한다.
+     */
+    public Mono<Member> insert(Member member) {
+        return insertAll(Mono.just(member)).thenReturn(member);
+    }
+
+    /**
+     * members 를 batchSize 개씩 INSERT 하나(bind 묶음)로 보내고, 저장한 건수를 반환한다. 전체를 트랜잭션 하나로 저장한다.
+     *
+     * 앞 묶음의 INSERT 가 끝나야 다음 묶음을 요청하므로, members 가 DB 보다 빨리 만들어져도 메모리에는 두 묶음 정도만 머문다.
+     * 실패하거나 구독을 취소하면 롤백한다.
+     */
+    public Mono<Long> insertAll(Publisher<Member> members) {
+        return Mono.usingWhen(pool.create(),
+                connection -> Mono.from(connection.beginTransaction())
+                        .then(Flux.from(members)
+                                .buffer(batchSize)
+                                .concatMap(batch -> insertBatch(connection, batch), 1)
+                                .reduce(0L, Long::sum))
+                        .flatMap(rows -> Mono.from(connection.commitTransaction()).thenReturn(rows)),
+                Connection::close,
+                (connection, error) -> rollbackAndClose(connection),
+                MemberReactiveRepository::rollbackAndClose);
+    }
+
+    /**
+     * @return 수정한 Member 가 있으면 true
+     */
+    public Mono<Boolean> updateName(UUID id, String name) {
+        return executeUpdate(id, connection -> bindName(connection.createStatement("update member set name = $2 where id = $1")
+                .bind(0, id), 1, name));
+    }
+
+    /**
+     * @return 삭제한 Member 가 있으면 true
+     */
+    public Mono<Boolean> deleteById(UUID id) {
+        return executeUpdate(id, connection -> connection.createStatement("delete from member where id = $1").bind(0, id));
+    }
+
+    /**
+     * 커넥션 풀을 닫는다.
+     */
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private Mono<Boolean> executeUpdate(UUID id, Function<Connection, Statement> statement) {
+        return Flux.usingWhen(pool.create(),
+                        connection -> Flux.from(statement.apply(connection).execute()).concatMap(Result::getRowsUpdated),
+                        Connection::close)
+                .reduce(0L, Long::sum)
+                .map(rows -> rows > 0)
+                .doOnNext(updated -> {
+                    if (updated) {
+                        cacheInvalidator.evictNowAndAfterCompletion(Collections.singleton(id));
+                    }
+                });
+    }
+
+    private Mono<Long> insertBatch(Connection connection, List<Member> batch) {
+        return Mono.defer(() -> {
+            Statement statement = connection.createStatement(INSERT_SQL);
+            for (int i = 0; i < batch.size(); i++) {
+                Member member = batch.get(i);
+                if (member.getId() == null) {
+                    member.setId(TimeOrderedUuidGenerator.next());
+                }
+                if (i > 0) {
+                    statement.add();
+                }
+                bindName(statement.bind(0, member.getId()), 1, member.getName());
+            }
+            return Flux.from(statement.execute())
+                    .concatMap(Result::getRowsUpdated)
+                    .reduce(0L, Long::sum);
+        });
+    }
+
+    private static Statement bindName(Statement statement, int index, String name) {
+        return name == null ? statement.bindNull(index, String.class) : statement.bind(index, name);
+    }
+
+    private static Publisher<Void> rollbackAndClose(Connection connection) {
+        return Mono.from(connection.rollbackTransaction())
+                .onErrorResume(e -> Mono.empty())
+                .then(Mono.from(connection.close()));
+    }
+
+    private static Member toMember(Row row, RowMetadata metadata) {
+        return new Member(row.get("id", UUID.class), row.get("name", String.class));
+    }
+}
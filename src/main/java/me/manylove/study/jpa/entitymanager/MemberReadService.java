@@ -0,0 +1,121 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 수정하지 않고 읽기만 하는 대량 조회용 API.
+ *
+ * 일반 조회는 엔티티마다 1차 캐시 등록, 스냅샷 보관, flush 시 변경 감지 비용이 든다.
+ * 여기서는 DTO 프로젝션 또는 stateless session 을 사용해서 영속성 컨텍스트에 아무것도 남기지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberReadService {
+
+    static final String VIEW_SELECT = "select new me.manylove.study.jpa.entitymanager.MemberView(m.id, m.name) from Member m";
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+
+    @Transactional(readOnly = true)
+    public Optional<MemberView> findView(UUID id) {
+        return em.createQuery(VIEW_SELECT + " where m.id = :id", MemberView.class)
+                .setParameter("id", id)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    @Transactional(readOnly = true)
+    public List<MemberView> findAllViews() {
+        return em.createQuery(VIEW_SELECT, MemberView.class)
+                .getResultList();
+    }
+
+    /**
+     * 이름순(이름이 같으면 id 순, 이름이 없는 Member 는 마지막)으로 size 개를 조회한다.
+     *
+     * OFFSET 은 건너뛸 행을 모두 읽고 버리므로 뒤 페이지일수록 느려진다.
+     * 여기서는 이전 페이지의 마지막 (name, id) 다음부터 member_name_id_idx 인덱스를 읽으므로 페이지 위치와 관계없이 일정하다.
+     *
+     * @param after 이전 페이지의 {@link MemberPage#getNext()}. 첫 페이지는 null
+     * @throws IllegalArgumentException size 가 1 ~ {@value #MAX_PAGE_SIZE} 를 벗어나거나 after 가 올바르지 않은 경우
+     */
+    @Transactional(readOnly = true)
+    public MemberPage findPage(String after, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE + ": " + size);
+        }
+        MemberPageToken token = after == null ? null : MemberPageToken.decode(after);
+
+        // 하나 더 읽어서 다음 페이지가 있는지 확인한다.
+        List<MemberView> views = new ArrayList<>(size + 1);
+        if (token == null || token.getName() != null) {
+            views.addAll(findNamed(token, size + 1));
+        }
+        if (views.size() <= size) {
+            MemberPageToken unnamedAfter = token != null && token.getName() == null ? token : null;
+            views.addAll(findUnnamed(unnamedAfter, size + 1 - views.size()));
+        }
+
+        if (views.size() <= size) {
+            return new MemberPage(views, null);
+        }
+        List<MemberView> content = views.subList(0, size);
+        return new MemberPage(new ArrayList<>(content), MemberPageToken.after(content.get(size - 1)).encode());
+    }
+
+    /**
+     * (name, id) > (:name, :id) 를 인덱스 범위 조건(name >= :name)과 함께 풀어 쓴다.
+     */
+    private List<MemberView> findNamed(MemberPageToken after, int limit) {
+        if (after == null) {
+            return em.createQuery(VIEW_SELECT + " where m.name is not null order by m.name, m.id", MemberView.class)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        return em.createQuery(VIEW_SELECT + " where m.name >= :name and (m.name > :name or m.id > :id)"
+                        + " order by m.name, m.id", MemberView.class)
+                .setParameter("name", after.getName())
+                .setParameter("id", after.getId())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private List<MemberView> findUnnamed(MemberPageToken after, int limit) {
+        if (after == null) {
+            return em.createQuery(VIEW_SELECT + " where m.name is null order by m.id", MemberView.class)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
+        return em.createQuery(VIEW_SELECT + " where m.name is null and m.id > :id order by m.id", MemberView.class)
+                .setParameter("id", after.getId())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * stateless session 으로 조회한 준영속 Member 를 반환한다.
+     * 1차 캐시, 2차 캐시, 스냅샷을 거치지 않으므로 반환된 객체를 수정해도 DB 에 반영되지 않는다.
+     */
+    public List<Member> findAllDetached() {
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            return session.createQuery("select m from Member m", Member.class)
+                    .setReadOnly(true)
+                    .list();
+        }
+    }
+}
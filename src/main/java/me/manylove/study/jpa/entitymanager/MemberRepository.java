@@ -0,0 +1,48 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Repository
+public class MemberRepository {
+
+    private final EntityManager em;
+    private final int multiLoadBatchSize;
+
+    public MemberRepository(EntityManager em, @Value("${member.multi-load.batch-size:500}") int multiLoadBatchSize) {
+        this.em = em;
+        this.multiLoadBatchSize = multiLoadBatchSize;
+    }
+
+    /**
+     * 여러 id 의 Member 를 한번에 조회한다.
+     *
+     * 영속성 컨텍스트에 이미 있는 Member 는 그대로 사용하고(동일성 보장), 없는 id 만 batch 크기 단위의 IN 쿼리로 가져온다.
+     * 결과는 ids 순서를 따르며, 존재하지 않거나 삭제된 id 는 결과에서 빠진다.
+     */
+    @Transactional(readOnly = true)
+    public List<Member> findAllByIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Member> members = em.unwrap(Session.class)
+                .byMultipleIds(Member.class)
+                .enableSessionCheck(true)
+                .enableOrderedReturn(true)
+                .withBatchSize(multiLoadBatchSize)
+                .multiLoad(new ArrayList<>(ids));
+        return members.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
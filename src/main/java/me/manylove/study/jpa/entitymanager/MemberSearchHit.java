@@ -0,0 +1,15 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * 이름 검색 결과 하나. score 는 검색어와 이름의 trigram 유사도( 0 ~ 1 )
+ */
+@Value
+public class MemberSearchHit {
+    UUID id;
+    String name;
+    float score;
+}
@@ -0,0 +1,80 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 이름 부분 검색과 유사(오타) 검색. pg_trgm GIN 인덱스( sql/ddl-postgresql.sql )를 사용하는 PostgreSQL 전용 API.
+ *
+ * 이름에 검색어가 들어 있거나( LIKE '%검색어%' ) trigram 유사도가 pg_trgm.similarity_threshold(기본 0.3) 이상인 Member 를
+ * 유사도가 높은 순, 같으면 id 순으로 반환한다. 인덱스가 없으면 LIKE '%검색어%' 는 테이블 전체를 읽는다.
+ * 2글자 이하의 검색어는 trigram 으로 후보를 좁히지 못하므로 인덱스 전체를 읽는다.
+ *
+ * 엔티티가 아닌 유사도 값을 함께 읽으므로 JDBC 로 조회한다. 영속성 컨텍스트를 거치지 않는다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberSearchService {
+
+    static final int MAX_LIMIT = 100;
+
+    private static final String SEARCH_SQL =
+            "select id, name, similarity(name, :query) as score from member"
+                    + " where (name like :pattern or name % :query)";
+    private static final String AFTER_SQL =
+            " and (similarity(name, :query) < :score or (similarity(name, :query) = :score and id > :id))";
+    private static final String ORDER_SQL = " order by score desc, id limit :limit";
+
+    private static final RowMapper<MemberSearchHit> HIT_MAPPER = (rs, rowNum) ->
+            new MemberSearchHit(rs.getObject("id", UUID.class), rs.getString("name"), rs.getFloat("score"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @param after 이전 페이지의 {@link MemberSearchPage#getNext()}. 첫 페이지는 null
+     * @throws IllegalArgumentException query 가 비었거나, limit 이 1 ~ {@value #MAX_LIMIT} 를 벗어나거나, after 가 올바르지 않은 경우
+     */
+    @Transactional(readOnly = true)
+    public MemberSearchPage search(String query, String after, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("query must not be blank");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + ": " + limit);
+        }
+        String trimmed = query.trim();
+        MemberSearchToken token = after == null ? null : MemberSearchToken.decode(after);
+
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("query", trimmed)
+                .addValue("pattern", "%" + escapeLike(trimmed) + "%")
+                .addValue("limit", limit + 1);   // 하나 더 읽어서 다음 페이지가 있는지 확인한다.
+        String sql = SEARCH_SQL;
+        if (token != null) {
+            sql += AFTER_SQL;
+            parameters.addValue("score", token.getScore()).addValue("id", token.getId());
+        }
+        List<MemberSearchHit> hits = jdbcTemplate.query(sql + ORDER_SQL, parameters, HIT_MAPPER);
+
+        if (hits.size() <= limit) {
+            return new MemberSearchPage(hits, null);
+        }
+        List<MemberSearchHit> content = new ArrayList<>(hits.subList(0, limit));
+        return new MemberSearchPage(content, MemberSearchToken.after(content.get(limit - 1)).encode());
+    }
+
+    /**
+     * 검색어의 %, _ 가 LIKE 패턴 문자로 해석되지 않게 한다. (PostgreSQL 기본 escape 문자 \ )
+     */
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,53 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 이전 검색 페이지의 마지막 (score, id). 클라이언트에게는 Base64url 문자열로 전달한다.
+ *
+ * [ 4 bytes : score (float) ][ 16 bytes : id ]
+ * score 는 DB 의 real 값을 그대로 담으므로 다음 페이지 조건에서 같은 값과 정확히 비교된다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+final class MemberSearchToken {
+    private static final int LENGTH = 4 + 16;
+
+    private final float score;
+    private final UUID id;
+
+    static MemberSearchToken after(MemberSearchHit last) {
+        return new MemberSearchToken(last.getScore(), last.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException 이 클래스가 만든 값이 아닌 경우
+     */
+    static MemberSearchToken decode(String token) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid search token: " + token, e);
+        }
+        if (bytes.length != LENGTH) {
+            throw new IllegalArgumentException("Invalid search token: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new MemberSearchToken(buffer.getFloat(), new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+                .putFloat(score)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+}
@@ -0,0 +1,72 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * member.sharding.enabled=true 이면 member.sharding.urls 의 DB 들로 MemberShards 를 만든다.
+ *
+ * 기본 DataSource/EntityManagerFactory 와 별개로 동작하므로 기존 API(EntityManager, MemberRepository 등)는 그대로 기본 DB 를 쓴다.
+ * MemberController 의 목록/검색/단건 조회와 이름 변경(MemberNameService)은 MemberShards 가 있으면 샤드에서 실행한다.
+ * 로컬 구성 : docker/shards/docker-compose.yml 과 shards 프로필
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberShardingProperties.class)
+public class MemberShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberShards memberShards(MemberShardingProperties properties, DataSourceProperties dataSourceProperties,
+                                     JpaProperties jpaProperties, Environment environment,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariConfig template = ReplicaRoutingConfig.primaryConfig(dataSourceProperties, environment);
+        meterRegistry.ifAvailable(registry -> template.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        List<DataSource> dataSources = shardPools(template, properties.getUrls());
+        return new MemberShards(dataSources, hibernateSettings(jpaProperties), properties.getScatterThreads());
+    }
+
+    /**
+     * template 풀 설정을 복사하고 URL 과 풀 이름(member-pool-shard-0, ...)만 바꾼 샤드별 커넥션 풀.
+     * 풀 지표는 풀 이름별로 hikaricp.connections.* 에 남는다.
+     */
+    static List<DataSource> shardPools(HikariConfig template, List<String> urls) {
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            template.copyStateTo(config);
+            config.setJdbcUrl(urls.get(i));
+            config.setPoolName(template.getPoolName() + "-shard-" + i);
+            dataSources.add(new HikariDataSource(config));
+        }
+        return dataSources;
+    }
+
+    /**
+     * spring.jpa.properties 와 dialect. 스키마는 sql/ddl.sql 로 만들어 두므로 검증하지 않는다.
+     */
+    static Map<String, Object> hibernateSettings(JpaProperties jpaProperties) {
+        Map<String, Object> settings = new HashMap<>(jpaProperties.getProperties());
+        if (jpaProperties.getDatabasePlatform() != null) {
+            settings.put(AvailableSettings.DIALECT, jpaProperties.getDatabasePlatform());
+        }
+        settings.put(AvailableSettings.HBM2DDL_AUTO, "none");
+        return settings;
+    }
+}
@@ -0,0 +1,25 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Member 샤딩 설정 ( member.sharding.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.sharding")
+public class MemberShardingProperties {
+
+    /** MemberShards 사용 여부. */
+    private boolean enabled = false;
+
+    /** 샤드 JDBC URL. 순서가 바뀌면 Member 가 다른 샤드로 배정된다. 계정과 커넥션 풀 설정은 spring.datasource 를 따른다. */
+    private List<String> urls = new ArrayList<>();
+
+    /** 목록/검색을 모든 샤드에 동시에 보내는 스레드 수. */
+    private int scatterThreads = 16;
+}
@@ -0,0 +1,265 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Member 를 id 의 해시로 여러 DB(샤드)에 나눠 저장한다. 샤드마다 DataSource 와 EntityManagerFactory 를 따로 둔다.
+ *
+ * - 저장/조회/수정/삭제는 ShardedMemberSession 으로, id 가 속한 샤드 하나에서 실행한다.
+ * - 목록(findPage)과 검색(search)은 모든 샤드에 같은 조건으로 동시에 조회한 뒤(scatter), 정렬 순서대로 합쳐서 한 페이지를 만든다(gather).
+ *   샤드마다 한 페이지 + 1 건만 읽으므로 샤드 수만큼만 더 읽는다.
+ *
+ * 샤드는 Jump Consistent Hash 로 고른다. 샤드를 N 개에서 N+1 개로 늘리면 1/(N+1) 의 Member 만 새 샤드로 옮기면 된다. (옮기는 작업은 포함하지 않음)
+ * 합칠 때 이름은 코드 포인트 순서로 비교하므로 샤드 DB 의 정렬 규칙(LC_COLLATE)은 C 여야 한다. ( docker/shards )
+ * 2차 캐시는 사용하지 않는다.
+ */
+public class MemberShards implements AutoCloseable {
+
+    /** PostgreSQL uuid 정렬 순서 (바이트 순서, 부호 없음) */
+    static final Comparator<UUID> ID_ORDER = (a, b) -> {
+        int compare = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return compare != 0 ? compare : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+    /** 이름순(없으면 마지막), 같으면 id 순. MemberReadService.findPage 와 같은 순서 */
+    static final Comparator<MemberView> PAGE_ORDER = Comparator
+            .comparing(MemberView::getName, Comparator.nullsLast(MemberShards::compareCodePoints))
+            .thenComparing(MemberView::getId, ID_ORDER);
+    /** 유사도 높은 순, 같으면 id 순. MemberSearchService.search 와 같은 순서 */
+    static final Comparator<MemberSearchHit> SEARCH_ORDER = (a, b) -> {
+        int compare = Float.compare(b.getScore(), a.getScore());
+        return compare != 0 ? compare : ID_ORDER.compare(a.getId(), b.getId());
+    };
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final ExecutorService executor;
+
+    /**
+     * @param dataSources 샤드 순서대로의 DataSource. 순서가 바뀌면 Member 가 다른 샤드로 배정된다.
+     * @param settings    모든 샤드의 EntityManagerFactory 에 적용할 Hibernate 설정
+     */
+    public MemberShards(List<DataSource> dataSources, Map<String, Object> settings, int scatterThreads) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(scatterThreads, runnable -> {
+            Thread thread = new Thread(runnable, "member-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (DataSource dataSource : dataSources) {
+                shards.add(new Shard(dataSource, buildSessionFactory(dataSource, settings)));
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * id 가 속한 샤드 번호 ( 0 ~ size() - 1 )
+     */
+    public int shardOf(UUID id) {
+        return jumpConsistentHash(mix(id.getMostSignificantBits() ^ Long.rotateLeft(id.getLeastSignificantBits(), 32)), shards.size());
+    }
+
+    public EntityManagerFactory entityManagerFactory(int shard) {
+        return shards.get(shard).sessionFactory;
+    }
+
+    public ShardedMemberSession openSession() {
+        return new ShardedMemberSession(this);
+    }
+
+    /**
+     * 새 세션에서 work 를 실행하고 커밋한다. 예외가 나면 모든 샤드를 롤백한다.
+     */
+    public <T> T inTransaction(Function<ShardedMemberSession, T> work) {
+        try (ShardedMemberSession session = openSession()) {
+            T result = work.apply(session);
+            session.commit();
+            return result;
+        }
+    }
+
+    public Optional<MemberView> findView(UUID id) {
+        return shards.get(shardOf(id)).readService.findView(id);
+    }
+
+    /**
+     * 모든 샤드를 합친 이름순 목록. 사용법은 {@link MemberReadService#findPage(String, int)} 와 같다.
+     */
+    public MemberPage findPage(String after, int size) {
+        List<MemberPage> pages = scatter(shard -> shard.readService.findPage(after, size));
+
+        List<MemberView> merged = new ArrayList<>();
+        boolean more = false;
+        for (MemberPage page : pages) {
+            merged.addAll(page.getContent());
+            more |= page.getNext() != null;
+        }
+        merged.sort(PAGE_ORDER);
+        if (!more && merged.size() <= size) {
+            return new MemberPage(merged, null);
+        }
+        List<MemberView> content = new ArrayList<>(merged.subList(0, Math.min(size, merged.size())));
+        return new MemberPage(content, MemberPageToken.after(content.get(content.size() - 1)).encode());
+    }
+
+    /**
+     * 모든 샤드를 합친 유사도순 이름 검색. 사용법은 {@link MemberSearchService#search(String, String, int)} 와 같다.
+     */
+    public MemberSearchPage search(String query, String after, int limit) {
+        List<MemberSearchPage> pages = scatter(shard -> shard.searchService.search(query, after, limit));
+
+        List<MemberSearchHit> merged = new ArrayList<>();
+        boolean more = false;
+        for (MemberSearchPage page : pages) {
+            merged.addAll(page.getContent());
+            more |= page.getNext() != null;
+        }
+        merged.sort(SEARCH_ORDER);
+        if (!more && merged.size() <= limit) {
+            return new MemberSearchPage(merged, null);
+        }
+        List<MemberSearchHit> content = new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+        return new MemberSearchPage(content, MemberSearchToken.after(content.get(content.size() - 1)).encode());
+    }
+
+    /**
+     * 조회 스레드를 멈추고 EntityManagerFactory 와 닫을 수 있는 DataSource(커넥션 풀)를 닫는다.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (Shard shard : shards) {
+            shard.sessionFactory.close();
+            if (shard.dataSource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) shard.dataSource).close();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to close a shard data source", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 샤드마다 query 를 동시에 실행하고 샤드 순서대로 결과를 반환한다. 하나라도 실패하면 그 예외를 던진다.
+     */
+    private <T> List<T> scatter(Function<Shard, T> query) {
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static SessionFactory buildSessionFactory(DataSource dataSource, Map<String, Object> settings) {
+        Map<String, Object> shardSettings = new HashMap<>(settings);
+        shardSettings.put(AvailableSettings.DATASOURCE, dataSource);
+        shardSettings.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder().applySettings(shardSettings).build();
+        try {
+            return new MetadataSources(registry)
+                    .addAnnotatedClass(Member.class)
+                    .buildMetadata()
+                    .buildSessionFactory();
+        } catch (RuntimeException e) {
+            StandardServiceRegistryBuilder.destroy(registry);
+            throw e;
+        }
+    }
+
+    /**
+     * MurmurHash3 의 fmix64 : 입력 bit 가 결과 전체에 고르게 퍼지게 한다.
+     */
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Lamping, Veach "A Fast, Minimal Memory, Consistent Hash Algorithm"
+     */
+    static int jumpConsistentHash(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static final class Shard {
+        private final DataSource dataSource;
+        private final SessionFactory sessionFactory;
+        private final MemberReadService readService;
+        private final MemberSearchService searchService;
+
+        private Shard(DataSource dataSource, SessionFactory sessionFactory) {
+            this.dataSource = dataSource;
+            this.sessionFactory = sessionFactory;
+            // 트랜잭션 밖에서 호출하므로 조회할 때마다 EntityManager 를 열고 닫는다.
+            this.readService = new MemberReadService(
+                    SharedEntityManagerCreator.createSharedEntityManager(sessionFactory), sessionFactory);
+            this.searchService = new MemberSearchService(new NamedParameterJdbcTemplate(dataSource));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Member 를 있으면 수정하고 없으면 저장한다. (PostgreSQL INSERT ... ON CONFLICT)
+ *
+ * em.merge 는 엔티티마다 SELECT 로 상태를 읽은 뒤 flush 시점에 INSERT 또는 UPDATE 를 실행한다.
+ * 여기서는 SELECT 없이 JDBC batch 로 한번에 쓰고, 영속성 컨텍스트와 2차 캐시를 DB 와 맞춘다.
+ */
+@Service
+public class MemberUpsertService {
+
+    static final String UPSERT_SQL =
+            "insert into member (id, name) values (?, ?) on conflict (id) do update set name = excluded.name";
+
+    private final EntityManager em;
+    private final MemberCacheInvalidator cacheInvalidator;
+    private final int chunkSize;
+
+    public MemberUpsertService(EntityManager em, MemberCacheInvalidator cacheInvalidator,
+                               @Value("${member.bulk.chunk-size:500}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("member.bulk.chunk-size must be positive: " + chunkSize);
+        }
+        this.em = em;
+        this.cacheInvalidator = cacheInvalidator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * members 를 저장하거나 수정하고, 반영한 건수를 반환한다.
+     * id 가 없는 Member 에는 시간 순서 UUID 를 부여하고, 같은 id 가 여러 번 있으면 마지막 것을 반영한다.
+     * 전달한 Member 는 영속성 컨텍스트에 들어가지 않는다. 이미 관리 중인 같은 id 의 엔티티는 DB 에서 다시 읽는다.
+     */
+    @Transactional
+    public int saveOrUpdateAll(Collection<Member> members) {
+        Map<UUID, Member> byId = new LinkedHashMap<>();
+        for (Member member : members) {
+            if (member.getId() == null) {
+                member.setId(TimeOrderedUuidGenerator.next());
+            }
+            byId.put(member.getId(), member);
+        }
+        if (byId.isEmpty()) {
+            return 0;
+        }
+
+        Session session = em.unwrap(Session.class);
+        // 쌓여 있던 변경 내용이 나중에 flush 되면서 upsert 결과를 덮어쓰지 않도록 먼저 반영한다.
+        session.flush();
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                int pending = 0;
+                for (Member member : byId.values()) {
+                    statement.setObject(1, member.getId());
+                    statement.setString(2, member.getName());
+                    statement.addBatch();
+                    if (++pending == chunkSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+
+        refreshManaged(session.unwrap(SessionImplementor.class), byId.keySet());
+        cacheInvalidator.evictNowAndAfterCompletion(byId.keySet());
+        return byId.size();
+    }
+
+    private void refreshManaged(SessionImplementor session, Collection<UUID> ids) {
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (UUID id : ids) {
+            EntityKey key = session.generateEntityKey(id, persister);
+            Object managed = session.getPersistenceContext().getEntity(key);
+            if (managed != null) {
+                em.refresh(managed);
+            }
+        }
+    }
+}
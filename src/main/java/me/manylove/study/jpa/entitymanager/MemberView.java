@@ -0,0 +1,14 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * 조회 전용 Member. 엔티티가 아니므로 영속성 컨텍스트가 관리하지 않는다.
+ */
+@Value
+public class MemberView {
+    UUID id;
+    String name;
+}
@@ -0,0 +1,312 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 트랜잭션이 달라도 같은 Member 의 이름 변경을 메모리에 모았다가, 마지막 값만 batch 로 쓴다. (write-behind)
+ *
+ * Chapter 2 의 변경 감지는 한 트랜잭션 안에서만 UPDATE 를 합친다. 여기서는 id 별로 마지막 이름만 남겨 두므로,
+ * 자주 바뀌는 Member 는 flush 주기마다 UPDATE 한번으로 줄어든다.
+ *
+ * 버퍼는 id 의 hash 로 나눈 stripe 마다 잠금을 따로 두어 쓰는 스레드끼리 덜 경쟁한다.
+ * 모인 건수가 flushSize 에 이르거나 flushInterval 이 지나면 백그라운드 스레드가 한번에 쓴다.
+ *
+ * [ 내구성 ]
+ * updateName 이 반환되었다는 것은 메모리에 들어갔다는 뜻이다. DB 에 반영되기 전에 프로세스가 죽으면 사라진다.
+ * 쓰기가 실패하면 그 사이에 들어온 더 새로운 값을 덮지 않는 범위에서 버퍼에 되돌려 다음 주기에 다시 쓴다.
+ * 되돌릴 stripe 가 그 사이 새 변경으로 가득 찼으면 기다리지 않고 버린다. (getDropped, 경고 로그)
+ * 정상 종료(close) 시에는 남은 변경을 모두 쓴다. 반영 전까지 DB 와 2차 캐시는 이전 이름을 보여 주며,
+ * pendingName 은 쓰는 중인 batch 까지 커밋될(또는 되돌려질) 때까지 보여 준다.
+ * 같은 id 를 버퍼를 거치지 않고 수정하면 나중에 반영되는 버퍼의 값이 덮어쓴다.
+ *
+ * [ 백프레셔 ]
+ * stripe 가 가득 차면 새 id 는 offerTimeout 동안 자리가 날 때까지 기다리고, 그래도 없으면 RejectedExecutionException 을 던진다.
+ * 이미 버퍼에 있는 id 의 변경은 기다리지 않는다.
+ */
+@Slf4j
+public class MemberWriteBehindBuffer implements AutoCloseable {
+
+    private static final int CLOSE_ATTEMPTS = 3;
+
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final MemberBatchWriter writer;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /** flush 를 한 스레드씩 실행한다. 쓰는 중인 batch(Stripe.writing)가 하나뿐이어야 한다. */
+    private final ReentrantLock flushing = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private boolean flushRequestPending;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    public MemberWriteBehindBuffer(MemberBatchWriter writer, int stripes, int capacity, int flushSize,
+                                   Duration flushInterval, Duration offerTimeout) {
+        if (stripes < 1 || capacity < stripes || flushSize < 1) {
+            throw new IllegalArgumentException("stripes, capacity and flush size must be positive and capacity >= stripes");
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeCapacity = capacity / stripes;
+        this.writer = writer;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.flusher = new Thread(this::run, "member-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * @throws RejectedExecutionException 버퍼가 가득 차서 offerTimeout 안에 자리가 나지 않은 경우
+     * @throws IllegalStateException      버퍼가 닫힌 경우
+     */
+    public void updateName(UUID id, String name) {
+        Objects.requireNonNull(id, "id");
+        Stripe stripe = stripeOf(id);
+        int total;
+        stripe.lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind buffer is closed");
+            }
+            if (stripe.updates.containsKey(id)) {
+                stripe.updates.put(id, name);
+                coalesced.increment();
+                submitted.increment();
+                return;
+            }
+            long remaining = offerTimeoutNanos;
+            while (stripe.updates.size() >= stripeCapacity) {
+                requestFlush();
+                if (remaining <= 0) {
+                    throw new RejectedExecutionException("Write-behind buffer is full");
+                }
+                remaining = stripe.notFull.awaitNanos(remaining);
+            }
+            stripe.updates.put(id, name);
+            // flush 가 stripe 잠금 안에서 빼므로 더하는 것도 잠금 안에서 해야 getPending 이 음수가 되지 않는다.
+            total = pending.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for write-behind buffer space", e);
+        } finally {
+            stripe.lock.unlock();
+        }
+        submitted.increment();
+        if (total >= flushSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * 아직 DB 에 커밋되지 않은 이름. 쓰는 중인 batch 도 포함한다. 버퍼에 없으면 empty
+     */
+    public Optional<String> pendingName(UUID id) {
+        Stripe stripe = stripeOf(id);
+        stripe.lock.lock();
+        try {
+            String name = stripe.updates.get(id);
+            return Optional.ofNullable(name != null ? name : stripe.writing.get(id));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /** DB 에 쓴 변경 수 (= 실행한 UPDATE 수) */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /** 쓰기에 실패한 뒤 버퍼가 가득 차서 되돌리지 못하고 버린 변경 수 */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * 새 변경을 받지 않고, 남은 변경을 모두 쓴 뒤 멈춘다.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        requestFlush();
+        flusher.join();
+        for (int attempt = 0; attempt < CLOSE_ATTEMPTS && pending.get() > 0; attempt++) {
+            flush();
+        }
+        if (pending.get() > 0) {
+            log.error("Discarding {} member update(s) that could not be written on shutdown", pending.get());
+        }
+    }
+
+    private void run() {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
+            awaitFlushRequest();
+            flush();
+        }
+    }
+
+    /**
+     * 모든 stripe 를 비우고 한번에 쓴다. 실패하면 버퍼에 되돌린다.
+     * 가져간 변경은 쓰기가 끝날 때까지 stripe 의 writing 에 남겨 두어 pendingName 에서 사라지지 않게 한다.
+     */
+    void flush() {
+        flushing.lock();
+        try {
+            Map<UUID, String> batch = new LinkedHashMap<>();
+            for (Stripe stripe : stripes) {
+                stripe.lock.lock();
+                try {
+                    if (!stripe.updates.isEmpty()) {
+                        batch.putAll(stripe.updates);
+                        pending.addAndGet(-stripe.updates.size());
+                        stripe.writing = stripe.updates;
+                        stripe.updates = new LinkedHashMap<>();
+                        stripe.notFull.signalAll();
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                writer.write(batch);
+                written.add(batch.size());
+                batches.increment();
+            } catch (RuntimeException e) {
+                log.warn("Failed to write {} member update(s), retrying later", batch.size(), e);
+                requeue(batch);
+            } finally {
+                clearWriting();
+            }
+        } finally {
+            flushing.unlock();
+        }
+    }
+
+    private void clearWriting() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.writing = Collections.emptyMap();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 더 새로운 값이 들어온 id 는 건너뛴다. stripe 가 가득 찼으면 flush 스레드가 기다리지 않도록 버린다.
+     */
+    private void requeue(Map<UUID, String> batch) {
+        long discarded = 0;
+        for (Map.Entry<UUID, String> update : batch.entrySet()) {
+            Stripe stripe = stripeOf(update.getKey());
+            stripe.lock.lock();
+            try {
+                if (stripe.updates.containsKey(update.getKey())) {
+                    continue;
+                }
+                if (stripe.updates.size() >= stripeCapacity) {
+                    discarded++;
+                    continue;
+                }
+                stripe.updates.put(update.getKey(), update.getValue());
+                pending.incrementAndGet();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (discarded > 0) {
+            dropped.add(discarded);
+            log.warn("Dropping {} member update(s) that could not be requeued because the buffer is full", discarded);
+        }
+    }
+
+    private void requestFlush() {
+        flushLock.lock();
+        try {
+            flushRequestPending = true;
+            flushRequested.signal();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void awaitFlushRequest() {
+        flushLock.lock();
+        try {
+            long remaining = flushIntervalNanos;
+            while (!flushRequestPending && remaining > 0) {
+                remaining = flushRequested.awaitNanos(remaining);
+            }
+            flushRequestPending = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("submitted %,d, coalesced %,d, written %,d in %,d batches, dropped %,d, pending %,d",
+                getSubmitted(), getCoalesced(), getWritten(), getBatches(), getDropped(), getPending());
+    }
+
+    private Stripe stripeOf(UUID id) {
+        int hash = id.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition notFull = lock.newCondition();
+        Map<UUID, String> updates = new LinkedHashMap<>();
+        /** flush 가 가져가서 쓰는 중인 변경 */
+        Map<UUID, String> writing = Collections.emptyMap();
+    }
+}
@@ -0,0 +1,32 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * member.write-behind.enabled=true 이면 MemberWriteBehindBuffer 를 등록한다.
+ * 종료 시 DataSource 보다 먼저 닫히므로 남은 변경을 쓸 수 있다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.write-behind", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(MemberWriteBehindProperties.class)
+public class MemberWriteBehindConfig {
+
+    @Bean
+    public MemberBatchWriter memberBatchWriter(JdbcTemplate jdbcTemplate, TransactionTemplate tx,
+                                               MemberCacheInvalidator cacheInvalidator, MemberWriteBehindProperties properties) {
+        return new JdbcMemberBatchWriter(jdbcTemplate, tx, cacheInvalidator, properties.getFlushSize());
+    }
+
+    @Bean(destroyMethod = "close")
+    @Lazy(false)
+    public MemberWriteBehindBuffer memberWriteBehindBuffer(MemberBatchWriter memberBatchWriter, MemberWriteBehindProperties properties) {
+        return new MemberWriteBehindBuffer(memberBatchWriter, properties.getStripes(), properties.getCapacity(),
+                properties.getFlushSize(), properties.getFlushInterval(), properties.getOfferTimeout());
+    }
+}
@@ -0,0 +1,33 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 이름 변경 write-behind 설정 ( member.write-behind.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.write-behind")
+public class MemberWriteBehindProperties {
+
+    /** MemberWriteBehindBuffer 사용 여부. 반영 전 변경은 프로세스가 죽으면 사라진다. */
+    private boolean enabled = false;
+
+    /** 잠금을 나누는 stripe 수. */
+    private int stripes = 16;
+
+    /** 버퍼에 담을 수 있는 최대 Member 수. stripe 마다 capacity / stripes 씩 나눈다. */
+    private int capacity = 100_000;
+
+    /** 이만큼 모이면 flushInterval 을 기다리지 않고 쓴다. */
+    private int flushSize = 1_000;
+
+    /** 모인 변경을 쓰는 최대 주기. */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /** 버퍼가 가득 찼을 때 자리가 나기를 기다리는 최대 시간. */
+    private Duration offerTimeout = Duration.ofMillis(100);
+}
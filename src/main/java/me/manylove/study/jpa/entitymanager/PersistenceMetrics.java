@@ -0,0 +1,66 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate 세션 단위 지표.
+ *
+ * <ul>
+ *     <li>hibernate.session.flush : flush 소요 시간</li>
+ *     <li>hibernate.session.statements : 세션 하나가 실행한 JDBC 문장 수 (open-session-in-view 에서는 요청당 쿼리 수)</li>
+ *     <li>hibernate.first.level.cache.requests : 1차 캐시 hit/miss, hibernate.first.level.cache.hit.ratio</li>
+ * </ul>
+ * 엔티티 load/insert/update/delete 수는 hibernate.generate_statistics 로 켜지는 hibernate.* 지표,
+ * 커넥션 획득 시간은 hikaricp.connections.acquire 지표를 사용한다.
+ */
+@Component
+public class PersistenceMetrics {
+
+    private final Timer flush;
+    private final DistributionSummary statements;
+    private final Counter firstLevelCacheHits;
+    private final Counter firstLevelCacheMisses;
+
+    public PersistenceMetrics(MeterRegistry registry) {
+        this.flush = Timer.builder("hibernate.session.flush")
+                .description("Time spent flushing a session")
+                .register(registry);
+        this.statements = DistributionSummary.builder("hibernate.session.statements")
+                .description("JDBC statements executed by a session")
+                .baseUnit("statements")
+                .register(registry);
+        this.firstLevelCacheHits = Counter.builder("hibernate.first.level.cache.requests")
+                .tag("result", "hit")
+                .register(registry);
+        this.firstLevelCacheMisses = Counter.builder("hibernate.first.level.cache.requests")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("hibernate.first.level.cache.hit.ratio", this, PersistenceMetrics::firstLevelCacheHitRatio)
+                .register(registry);
+    }
+
+    void recordFlush(long nanos) {
+        flush.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordStatements(int count) {
+        statements.record(count);
+    }
+
+    void recordFirstLevelCache(boolean hit) {
+        (hit ? firstLevelCacheHits : firstLevelCacheMisses).increment();
+    }
+
+    private double firstLevelCacheHitRatio() {
+        double hits = firstLevelCacheHits.count();
+        double total = hits + firstLevelCacheMisses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+}
@@ -0,0 +1,34 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+/**
+ * 세션 단위 지표를 모으는 리스너를 모든 세션에 붙인다.
+ *
+ * Hibernate 5 는 세션 리스너를 클래스 이름( hibernate.session.events.auto )으로만 받으므로 Integrator 로는 붙일 수 없다.
+ * 대신 EntityManagerFactory 가 EntityManager 를 만들 때마다 이 컨텍스트의 PersistenceMetrics 를 가진 리스너를 붙인다.
+ * 컨텍스트가 여러 개여도(테스트, 인스턴스 사이 무효화 테스트의 두 노드) 각자의 지표에 기록된다.
+ */
+@Configuration(proxyBeanMethods = false)
+public class PersistenceMetricsConfig {
+
+    @Bean
+    public static BeanPostProcessor persistenceMetricsSessionListenerPostProcessor(ObjectProvider<PersistenceMetrics> metrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean) {
+                    PersistenceMetrics target = metrics.getObject();
+                    ((AbstractEntityManagerFactoryBean) bean).setEntityManagerInitializer(em ->
+                            em.unwrap(Session.class).addEventListeners(new PersistenceMetricsSessionListener(target)));
+                }
+                return bean;
+            }
+        };
+    }
+}
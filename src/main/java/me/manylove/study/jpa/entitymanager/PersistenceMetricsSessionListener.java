@@ -0,0 +1,44 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * 세션마다 하나씩 만들어지는 리스너. ( PersistenceMetricsConfig )
+ *
+ * 세션은 한 스레드에서만 사용하므로 세션 안의 값은 동기화 없이 모았다가 세션이 끝날 때 한번에 기록한다.
+ */
+public class PersistenceMetricsSessionListener extends BaseSessionEventListener {
+
+    private final PersistenceMetrics metrics;
+    private int statements;
+    private long flushStart;
+
+    PersistenceMetricsSessionListener(PersistenceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statements++;
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        statements++;
+    }
+
+    @Override
+    public void flushStart() {
+        flushStart = System.nanoTime();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        metrics.recordFlush(System.nanoTime() - flushStart);
+    }
+
+    @Override
+    public void end() {
+        metrics.recordStatements(statements);
+    }
+}
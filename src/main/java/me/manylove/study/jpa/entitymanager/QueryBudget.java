@@ -0,0 +1,95 @@
+package me.manylove.study.jpa.entitymanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 현재 스레드(요청)에서 실행된 SQL 을 센다.
+ *
+ * QueryBudgetStatementInspector 가 Hibernate 가 만든 SQL 을 기록하므로, 같은 SQL 이 반복되면 N+1 을 의심할 수 있다.
+ * <pre>
+ * try (QueryBudget budget = QueryBudget.start()) {
+ *     ...
+ *     budget.assertWithin(10, 3);
+ * }
+ * </pre>
+ */
+public class QueryBudget implements AutoCloseable {
+
+    private static final ThreadLocal<QueryBudget> CURRENT = new ThreadLocal<>();
+
+    private final QueryBudget previous;
+    private final Map<String, Integer> counts = new HashMap<>();
+    private int total;
+
+    private QueryBudget(QueryBudget previous) {
+        this.previous = previous;
+    }
+
+    public static QueryBudget start() {
+        QueryBudget budget = new QueryBudget(CURRENT.get());
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    static void record(String sql) {
+        QueryBudget budget = CURRENT.get();
+        if (budget != null) {
+            budget.total++;
+            budget.counts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    public int total() {
+        return total;
+    }
+
+    /**
+     * threshold 번 이상 실행된 SQL 과 실행 횟수. 많이 실행된 순서.
+     */
+    public Map<String, Integer> repeated(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+
+    public int maxRepeats() {
+        return counts.isEmpty() ? 0 : Collections.max(counts.values());
+    }
+
+    /**
+     * 전체 쿼리 수가 maxQueries 를 넘었거나, 같은 SQL 이 maxRepeats 번을 넘게 실행된 경우의 설명.
+     */
+    public List<String> violations(int maxQueries, int maxRepeats) {
+        List<String> violations = new ArrayList<>();
+        if (total > maxQueries) {
+            violations.add("query budget exceeded: " + total + " > " + maxQueries);
+        }
+        repeated(maxRepeats + 1).forEach((sql, count) ->
+                violations.add("same statement executed " + count + " times (N+1?): " + sql));
+        return violations;
+    }
+
+    public void assertWithin(int maxQueries, int maxRepeats) {
+        List<String> violations = violations(maxQueries, maxRepeats);
+        if (!violations.isEmpty()) {
+            throw new QueryBudgetExceededException(violations);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 요청당 쿼리 수 측정. 쿼리 기록은 항상 켜 두고(QueryBudget 이 없으면 아무것도 하지 않음), 필터만 설정으로 켜고 끈다.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(QueryBudgetProperties.class)
+public class QueryBudgetConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryBudgetInspectorCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryBudgetStatementInspector());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "member.query-budget", name = "enabled", matchIfMissing = true)
+    public QueryBudgetFilter queryBudgetFilter(QueryBudgetProperties properties) {
+        return new QueryBudgetFilter(properties);
+    }
+}
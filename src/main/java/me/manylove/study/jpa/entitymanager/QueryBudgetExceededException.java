@@ -0,0 +1,16 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class QueryBudgetExceededException extends RuntimeException {
+
+    private final List<String> violations;
+
+    public QueryBudgetExceededException(List<String> violations) {
+        super(String.join("\n", violations));
+        this.violations = violations;
+    }
+}
@@ -0,0 +1,65 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 요청 하나에서 실행된 쿼리 수를 세고, 제한을 넘거나 같은 쿼리가 반복되면 알린다.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    static final String MAX_REPEATS_HEADER = "X-Query-Max-Repeats";
+
+    private final QueryBudgetProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // 헤더는 본문보다 먼저 나가야 하고, 위반 시 실패는 응답이 나가기 전에 해야 하므로 이 두 경우에는 본문을 버퍼링한다.
+        // 버퍼링하지 않으면 실패시킬 때 이미 200 응답이 일부 전송되었을 수 있다.
+        ContentCachingResponseWrapper buffered = properties.isExposeHeaders() || properties.isFailOnViolation()
+                ? new ContentCachingResponseWrapper(response) : null;
+        boolean exceeded = false;
+        try (QueryBudget budget = QueryBudget.start()) {
+            chain.doFilter(request, buffered != null ? buffered : response);
+
+            if (properties.isExposeHeaders()) {
+                buffered.setHeader(QUERY_COUNT_HEADER, String.valueOf(budget.total()));
+                buffered.setHeader(MAX_REPEATS_HEADER, String.valueOf(budget.maxRepeats()));
+            }
+            check(request, budget);
+        } catch (QueryBudgetExceededException e) {
+            exceeded = true;
+            throw e;
+        } finally {
+            // 실패시키는 경우에는 버퍼링한 본문을 버리고, 오류 응답은 컨테이너가 만든다.
+            if (buffered != null && !exceeded) {
+                buffered.copyBodyToResponse();
+            }
+        }
+    }
+
+    private void check(HttpServletRequest request, QueryBudget budget) {
+        List<String> violations = budget.violations(properties.getMaxQueries(), properties.getMaxRepeats());
+        if (violations.isEmpty()) {
+            return;
+        }
+        if (properties.isFailOnViolation()) {
+            throw new QueryBudgetExceededException(violations);
+        }
+        log.warn("{} {} : {} queries\n{}", request.getMethod(), request.getRequestURI(), budget.total(),
+                String.join("\n", violations));
+    }
+}
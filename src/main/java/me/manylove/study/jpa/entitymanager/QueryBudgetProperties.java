@@ -0,0 +1,28 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 요청당 쿼리 수 제한 설정 ( member.query-budget.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.query-budget")
+public class QueryBudgetProperties {
+
+    /** 요청마다 쿼리 수를 세는 필터 사용 여부. */
+    private boolean enabled = true;
+
+    /** 요청 하나에서 허용하는 최대 쿼리 수. */
+    private int maxQueries = 50;
+
+    /** 같은 SQL 을 반복해서 실행해도 되는 최대 횟수. 넘으면 N+1 로 본다. */
+    private int maxRepeats = 5;
+
+    /** 위반 시 경고 로그 대신 QueryBudgetExceededException 을 던진다. (테스트용, 응답 본문을 버퍼링한다) */
+    private boolean failOnViolation = false;
+
+    /** 응답 헤더(X-Query-Count, X-Query-Max-Repeats)에 쿼리 수를 붙인다. (개발용, 응답 본문을 버퍼링한다) */
+    private boolean exposeHeaders = false;
+}
@@ -0,0 +1,15 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate 가 실행하려는 SQL 을 현재 요청의 QueryBudget 에 기록한다. SQL 은 바꾸지 않는다.
+ */
+public class QueryBudgetStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryBudget.record(sql);
+        return sql;
+    }
+}
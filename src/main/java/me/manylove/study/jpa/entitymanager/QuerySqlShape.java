@@ -0,0 +1,24 @@
+package me.manylove.study.jpa.entitymanager;
+
+import java.util.regex.Pattern;
+
+/**
+ * 같은 모양의 SQL 이 같은 문자열이 되도록 정리한다.
+ * 문자열/숫자 리터럴은 ? 로, 길이가 다른 IN (?, ?, ...) 목록은 (?...) 로 바꾸고 공백을 하나로 줄인다.
+ */
+final class QuerySqlShape {
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private QuerySqlShape() {
+    }
+
+    static String of(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,20 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Value;
+
+/**
+ * 실행한 문장 하나의 기록
+ */
+@Value
+public class QueryTrace {
+    /** 리터럴과 IN 목록을 정리한 SQL 모양 */
+    String sql;
+    /** 바인딩한 파라미터 수 (batch 이면 한 행 기준) */
+    int binds;
+    /** batch 로 실행한 행 수. batch 가 아니면 1 */
+    int batchSize;
+    /** 조회한 행 수 또는 변경된 행 수. 알 수 없으면 -1 */
+    long rows;
+    long durationNanos;
+    String thread;
+}
@@ -0,0 +1,43 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import javax.sql.DataSource;
+
+/**
+ * 쿼리 추적. DataSource 빈을 QueryTracingDataSource 로 감싸고, 추적 여부는 QueryTracer 로 실행 중에 바꾼다.
+ * 모든 파라미터를 요청 스레드에서 로그로 남기는 org.hibernate.type trace 로그는 sql-debug 프로필로 옮겼다.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(QueryTraceProperties.class)
+public class QueryTraceConfig {
+
+    @Bean(destroyMethod = "close")
+    @Lazy(false)
+    public QueryTracer queryTracer(QueryTraceProperties properties) {
+        return new QueryTracer(properties.isEnabled(), properties.getSampleRate(), properties.getBufferSize());
+    }
+
+    @Bean
+    public static BeanPostProcessor queryTracingDataSourcePostProcessor(ObjectProvider<QueryTracer> queryTracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof QueryTracingDataSource)) {
+                    return new QueryTracingDataSource((DataSource) bean, queryTracer.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryTraceEndpoint queryTraceEndpoint(QueryTracer queryTracer) {
+        return new QueryTraceEndpoint(queryTracer);
+    }
+}
@@ -0,0 +1,46 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 재시작 없이 쿼리 추적을 켜고 끈다.
+ *
+ *   GET  /actuator/querytrace
+ *   POST /actuator/querytrace  {"enabled": true, "sampleRate": 0.1}
+ *
+ * 인증이 없으므로 웹으로는 dev 프로필에서만 노출한다. ( management.endpoints.web.exposure.include )
+ */
+@Endpoint(id = "querytrace")
+@RequiredArgsConstructor
+public class QueryTraceEndpoint {
+
+    private final QueryTracer tracer;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", tracer.isEnabled());
+        status.put("sampleRate", tracer.getSampleRate());
+        status.put("recorded", tracer.getRecorded());
+        status.put("dropped", tracer.getDropped());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled, @Nullable Double sampleRate) {
+        if (sampleRate != null) {
+            tracer.setSampleRate(sampleRate);
+        }
+        if (enabled != null) {
+            tracer.setEnabled(enabled);
+        }
+        return status();
+    }
+}
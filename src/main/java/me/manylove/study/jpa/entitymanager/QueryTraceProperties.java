@@ -0,0 +1,22 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 쿼리 추적 설정 ( member.query-trace.* ). 실행 중에는 actuator /actuator/querytrace 로 바꾼다. (dev 프로필)
+ */
+@Getter @Setter
+@ConfigurationProperties("member.query-trace")
+public class QueryTraceProperties {
+
+    /** 시작 시 추적 여부. */
+    private boolean enabled = false;
+
+    /** 추적할 문장의 비율 (0 ~ 1). */
+    private double sampleRate = 0.01;
+
+    /** 로그로 쓰기 전에 기록을 담아 두는 버퍼 크기. 넘치면 버린다. */
+    private int bufferSize = 8192;
+}
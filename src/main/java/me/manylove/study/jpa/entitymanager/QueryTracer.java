@@ -0,0 +1,120 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 문장 실행 기록을 표본 추출해서 고정 크기 ring buffer 에 넣고, 별도 스레드가 로그(member.query-trace)로 남긴다.
+ *
+ * 요청 스레드는 기록을 버퍼에 넣기만 하고 로그 포맷팅이나 I/O 를 하지 않는다.
+ * 버퍼가 가득 차면 기다리지 않고 버리며, 버린 수는 dropped 로 센다.
+ * 표본 추출은 문장을 준비할 때(prepareStatement) 정하므로, 추출되지 않은 문장은 감싸지 않은 JDBC 객체를 그대로 쓴다.
+ */
+@Slf4j(topic = "member.query-trace")
+public class QueryTracer implements AutoCloseable {
+
+    private static final int DRAIN_BATCH = 256;
+
+    private volatile boolean enabled;
+    private volatile double sampleRate;
+    private final BlockingQueue<QueryTrace> buffer;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean running = true;
+    private final Thread writer;
+
+    public QueryTracer(boolean enabled, double sampleRate, int bufferSize) {
+        setSampleRate(sampleRate);
+        this.enabled = enabled;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.writer = new Thread(this::run, "member-query-trace");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sample rate must be between 0 and 1: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    boolean sample() {
+        return enabled && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    void record(QueryTrace trace) {
+        if (buffer.offer(trace)) {
+            recorded.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<QueryTrace> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running) {
+            try {
+                QueryTrace first = buffer.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, DRAIN_BATCH - 1);
+                batch.forEach(this::write);
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * logfmt 형식 : sql="..." binds=1 batch=1 rows=1 duration_us=120 thread=...
+     */
+    private void write(QueryTrace trace) {
+        log.info("sql=\"{}\" binds={} batch={} rows={} duration_us={} thread={}",
+                trace.getSql().replace("\"", "\\\""), trace.getBinds(), trace.getBatchSize(), trace.getRows(),
+                TimeUnit.NANOSECONDS.toMicros(trace.getDurationNanos()), trace.getThread());
+    }
+
+    /**
+     * 버퍼에 남은 기록을 모두 쓰고 멈춘다.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join();
+        List<QueryTrace> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        remaining.forEach(this::write);
+    }
+}
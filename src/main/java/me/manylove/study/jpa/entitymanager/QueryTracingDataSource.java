@@ -0,0 +1,243 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 표본으로 뽑힌 문장의 SQL 모양, 바인딩 수, 실행 시간, 행 수를 QueryTracer 에 기록하는 DataSource.
+ *
+ * 추적이 꺼져 있으면 커넥션을 감싸지 않는다. 켜져 있으면 문장을 준비할 때마다 표본 여부를 정하고,
+ * 뽑힌 문장만 JDK 동적 프록시로 감싼다. 조회 문장은 ResultSet 을 닫을 때, 나머지는 실행이 끝날 때 기록한다.
+ */
+public class QueryTracingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final QueryTracer tracer;
+
+    public QueryTracingDataSource(DataSource targetDataSource, QueryTracer tracer) {
+        super(targetDataSource);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trace(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return trace(super.getConnection(username, password));
+    }
+
+    /**
+     * 감싼 DataSource(커넥션 풀)를 닫는다. 스프링이 종료 시 호출한다.
+     */
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+
+    private Connection trace(Connection connection) {
+        return tracer.isEnabled() ? proxy(Connection.class, new ConnectionHandler(connection)) : connection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(QueryTracingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 프록시를 Map 의 key 로 쓰는 경우(Hibernate 의 Statement/ResultSet 관리)를 위해 equals/hashCode 는 프록시 기준으로 한다.
+     */
+    private abstract static class Handler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return handle(proxy, method, args);
+            }
+        }
+
+        abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+    }
+
+    private final class ConnectionHandler extends Handler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            String name = method.getName();
+            if ((name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))
+                    && tracer.sample()) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return proxy(method.getReturnType(), new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private final class StatementHandler extends Handler {
+        private final Statement target;
+        private final String preparedSql;
+        private int binds;
+        private int batchSize;
+        private String batchSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                binds = Math.max(binds, (Integer) args[0]);
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+                if (args != null && args.length == 1) {
+                    batchSql = (String) args[0];
+                }
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            } else if (name.equals("getResultSet") || name.equals("getGeneratedKeys")) {
+                ResultSet resultSet = (ResultSet) invokeTarget(target, method, args);
+                return resultSet == null ? null : proxy(ResultSet.class, new ResultSetHandler(resultSet, proxy, null, 0));
+            }
+            return invokeTarget(target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean batch = name.startsWith("executeBatch") || name.equals("executeLargeBatch");
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                    : batch && batchSql != null ? batchSql : preparedSql;
+            int executedBatch = batch ? batchSize : 1;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(target, method, args);
+            } catch (Throwable e) {
+                record(sql, executedBatch, -1, System.nanoTime() - start);
+                throw e;
+            } finally {
+                if (batch) {
+                    batchSize = 0;
+                    batchSql = null;
+                }
+            }
+            long duration = System.nanoTime() - start;
+
+            if (result instanceof ResultSet) {
+                return proxy(ResultSet.class, new ResultSetHandler((ResultSet) result, proxy, sql, duration));
+            }
+            if (result instanceof Number) {
+                record(sql, 1, ((Number) result).longValue(), duration);
+            } else if (result instanceof int[]) {
+                record(sql, executedBatch, sum((int[]) result, executedBatch), duration);
+            } else if (result instanceof long[]) {
+                long[] counts = (long[]) result;
+                long rows = 0;
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+                record(sql, executedBatch, rows, duration);
+            } else {
+                // execute(): 결과가 ResultSet 이면 행 수를 알 수 없다.
+                record(sql, 1, Boolean.TRUE.equals(result) ? -1 : target.getUpdateCount(), duration);
+            }
+            return result;
+        }
+
+        /**
+         * SUCCESS_NO_INFO(-2) 만 돌려주는 드라이버(reWriteBatchedInserts)는 batch 크기를 행 수로 본다.
+         */
+        private long sum(int[] counts, int executedBatch) {
+            long rows = 0;
+            boolean known = false;
+            for (int count : counts) {
+                if (count >= 0) {
+                    rows += count;
+                    known = true;
+                }
+            }
+            return known ? rows : executedBatch;
+        }
+
+        void record(String sql, int batch, long rows, long durationNanos) {
+            tracer.record(new QueryTrace(sql == null ? "" : QuerySqlShape.of(sql), binds, batch, rows, durationNanos,
+                    Thread.currentThread().getName()));
+        }
+    }
+
+    private final class ResultSetHandler extends Handler {
+        private final ResultSet target;
+        private final Object statement;
+        private final String sql;
+        private final long durationNanos;
+        private long rows;
+        private boolean recorded;
+
+        /**
+         * @param sql null 이면 기록하지 않는다. (getGeneratedKeys 등)
+         */
+        ResultSetHandler(ResultSet target, Object statement, String sql, long durationNanos) {
+            this.target = target;
+            this.statement = statement;
+            this.sql = sql;
+            this.durationNanos = durationNanos;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object hasNext = invokeTarget(target, method, args);
+                    if (Boolean.TRUE.equals(hasNext)) {
+                        rows++;
+                    }
+                    return hasNext;
+                case "getStatement":
+                    return statement;
+                case "close":
+                    if (sql != null && !recorded) {
+                        recorded = true;
+                        StatementHandler handler = (StatementHandler) Proxy.getInvocationHandler(statement);
+                        handler.record(sql, 1, rows, durationNanos);
+                    }
+                    return invokeTarget(target, method, args);
+                default:
+                    return invokeTarget(target, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 replica 설정 ( member.replica.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.replica")
+public class ReplicaProperties {
+
+    /** 읽기 전용 트랜잭션을 replica 로 보낼지 여부. */
+    private boolean enabled = false;
+
+    /** replica JDBC URL. 계정과 커넥션 풀 설정은 spring.datasource 를 따른다. */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * 쓰기 트랜잭션을 커밋한 스레드가 primary 에서 읽는 시간. 평소 복제 지연보다 길게 둔다.
+     * 스레드 단위이므로 같은 요청 안의 읽기에만 적용된다. 클라이언트의 다음 요청(특히 가상 스레드)은 replica 에서 이전 값을 읽을 수 있다.
+     */
+    private Duration readYourWrites = Duration.ofSeconds(1);
+
+    /** replica 상태를 확인하는 주기. 비정상으로 표시된 replica 는 이 주기마다 다시 확인한다. */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /** replica 커넥션을 기다리는 최대 시간. 넘으면 이번 요청만 다른 곳에서 읽는다. (연결 실패가 아니면 비정상으로 보지 않음) */
+    private Duration connectionTimeout = Duration.ofMillis(500);
+}
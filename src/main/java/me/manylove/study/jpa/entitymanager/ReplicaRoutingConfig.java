@@ -0,0 +1,125 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * member.replica.enabled=true 이면 DataSource 를 primary 와 replica 커넥션 풀로 나누고 ReplicaRoutingDataSource 로 묶는다.
+ *
+ * 스프링 부트가 만드는 DataSource 대신 등록하므로 spring.datasource.* 는 primary 에, 같은 풀 설정이 replica 에도 적용된다.
+ * 풀 지표는 풀 이름(member-pool, member-pool-replica-0, ...)별로 hikaricp.connections.* 에 남는다.
+ * 로컬 구성 : docker/replica/docker-compose.yml 과 replica 프로필
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.replica", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaProperties properties,
+                                 Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource primary = primaryPool(dataSourceProperties, environment);
+        meterRegistry.ifAvailable(registry -> primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<String> urls = properties.getUrls();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = replicaPool(primary, urls.get(i), i, properties);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, properties.getReadYourWrites());
+        routing.startHealthChecks(properties.getHealthCheckInterval());
+        meterRegistry.ifAvailable(registry -> Gauge.builder("member.replicas.healthy", routing, r -> r.healthyReplicas().size())
+                .description("읽기에 사용 중인 replica 수")
+                .register(registry));
+        return new RoutingDataSourceProxy(routing);
+    }
+
+    /**
+     * 트랜잭션마다 커넥션을 새로 가져오게 한다.
+     * 기본값(커넥션을 EntityManager 가 닫힐 때까지 유지)이면 open-in-view 요청에서 앞 트랜잭션의 커넥션을 다음 트랜잭션이 그대로 쓴다.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * 스프링 부트와 같은 방식으로 spring.datasource.* 와 spring.datasource.hikari.* 를 적용한 primary 풀.
+     */
+    static HikariDataSource primaryPool(DataSourceProperties dataSourceProperties, Environment environment) {
+        HikariDataSource primary = new HikariDataSource();
+        primaryConfig(dataSourceProperties, environment).copyStateTo(primary);
+        return primary;
+    }
+
+    /**
+     * primary 풀의 설정만. 풀을 만들지 않으므로 설정을 복사해서 다른 풀(샤드)을 만들 때 닫을 것이 남지 않는다.
+     */
+    static HikariConfig primaryConfig(DataSourceProperties dataSourceProperties, Environment environment) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(dataSourceProperties.determineUrl());
+        config.setUsername(dataSourceProperties.determineUsername());
+        config.setPassword(dataSourceProperties.determinePassword());
+        config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        Binder binder = Binder.get(environment);
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(config));
+        if (!binder.bind("spring.datasource.hikari.maximum-pool-size", Integer.class).isBound()) {
+            config.setMaximumPoolSize(HikariPoolSizer.recommendedPoolSize(environment));
+        }
+        if (config.getPoolName() == null) {
+            config.setPoolName("member-pool");
+        }
+        return config;
+    }
+
+    /**
+     * primary 풀 설정을 복사하고 URL, 이름, 커넥션 대기 시간만 바꾼 replica 풀. 커넥션은 읽기 전용으로 연다.
+     */
+    static HikariDataSource replicaPool(HikariDataSource primary, String url, int index, ReplicaProperties properties) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setJdbcUrl(url);
+        config.setPoolName(primary.getPoolName() + "-replica-" + index);
+        config.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        config.setReadOnly(true);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * 종료 시 ReplicaRoutingDataSource 가 가진 풀을 닫는다. ( QueryTracingDataSource.close 가 호출 )
+     */
+    static final class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+        RoutingDataSourceProxy(ReplicaRoutingDataSource routing) {
+            super(routing);
+        }
+
+        @Override
+        public void close() throws Exception {
+            ((ReplicaRoutingDataSource) obtainTargetDataSource()).close();
+        }
+    }
+}
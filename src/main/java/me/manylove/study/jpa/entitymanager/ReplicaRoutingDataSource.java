@@ -0,0 +1,246 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 읽기 전용 트랜잭션( @Transactional(readOnly = true) )의 커넥션은 replica 에서, 나머지는 primary 에서 가져온다.
+ *
+ * readOnly 여부는 트랜잭션 매니저가 커넥션을 가져온 뒤에 정해지므로, LazyConnectionDataSourceProxy 로 감싸서
+ * 첫 쿼리를 실행할 때 커넥션을 고르게 해야 한다. ( ReplicaRoutingConfig )
+ *
+ * - replica 는 정상인 것들을 돌아가며 쓴다. 연결에 실패한 replica 는 비정상으로 표시하고 다음 replica 를,
+ *   모두 비정상이면 primary 를 쓴다. 비정상 replica 는 checkHealth() 로 다시 연결되는 것을 확인할 때까지 쓰지 않는다.
+ *   풀이 바닥나서 기다리다 시간이 지난 것은 replica 가 바쁜 것이므로 이번 요청만 다른 곳에서 읽고 표시는 바꾸지 않는다.
+ * - replica 는 비동기로 복제되므로 방금 커밋한 내용이 아직 없을 수 있다. 쓰기 트랜잭션을 커밋한 스레드는
+ *   readYourWrites 동안 읽기도 primary 에서 한다. 트랜잭션 없이 실행한 쓰기는 고려하지 않는다.
+ *   스레드 단위이므로 같은 요청 안에서만 보장된다. 같은 클라이언트의 다음 요청은 보통 다른 스레드에서 실행되고,
+ *   가상 스레드( member.virtual-threads )에서는 요청마다 새 스레드이므로 replica 에서 이전 값을 읽을 수 있다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long readYourWritesNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ThreadLocal<Long> pinnedUntil = new ThreadLocal<>();
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * @param replicas 이름별 replica. 이름은 로그와 healthyReplicas() 에 쓴다.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration readYourWrites) {
+        if (replicas.containsKey(PRIMARY)) {
+            throw new IllegalArgumentException("replica name must not be '" + PRIMARY + "'");
+        }
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        this.readYourWritesNanos = readYourWrites.toNanos();
+
+        Map<Object, Object> targets = new LinkedHashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * interval 마다 checkHealth() 를 실행한다. close() 에서 멈춘다.
+     */
+    public synchronized void startHealthChecks(Duration interval) {
+        if (healthChecker != null || replicas.isEmpty()) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readsFromReplica()) {
+            pinAfterCommit();
+            return primary.getConnection();
+        }
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = nextHealthy();
+            if (replica == null) {
+                break;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                if (isPoolTimeout(e)) {
+                    log.debug("Replica {} has no idle connection, reading elsewhere", replica.name);
+                } else {
+                    replica.markDown(e);
+                }
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * getConnection(username, password), unwrap 등 getConnection() 외의 경로에서 쓰는 대상. 장애 시 다른 곳을 시도하지 않는다.
+     */
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (readsFromReplica()) {
+            Replica replica = nextHealthy();
+            if (replica != null) {
+                return replica.name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * replica 마다 커넥션을 검사해서 정상/비정상 표시를 갱신한다.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException e) {
+                replica.markDown(e);
+            }
+        }
+    }
+
+    public List<String> healthyReplicas() {
+        List<String> names = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                names.add(replica.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 상태 검사를 멈추고 primary 와 replica 중 닫을 수 있는 것(커넥션 풀)을 닫는다.
+     */
+    @Override
+    public void close() throws Exception {
+        synchronized (this) {
+            if (healthChecker != null) {
+                healthChecker.shutdownNow();
+            }
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) replica.dataSource).close();
+            }
+        }
+        if (primary instanceof AutoCloseable) {
+            ((AutoCloseable) primary).close();
+        }
+    }
+
+    /**
+     * HikariCP 는 풀이 바닥나서 connectionTimeout 이 지나면 SQLTransientConnectionException 을 던진다.
+     * 그 사이 새 커넥션을 만들다 실패했으면 그 예외를 원인으로 달아 주므로, 원인이 없을 때만 연결 문제가 아니라고 본다.
+     */
+    static boolean isPoolTimeout(SQLException e) {
+        return e instanceof SQLTransientConnectionException && e.getCause() == null;
+    }
+
+    private boolean readsFromReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !isPinned();
+    }
+
+    private boolean isPinned() {
+        Long until = pinnedUntil.get();
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until < 0) {
+            return true;
+        }
+        pinnedUntil.remove();
+        return false;
+    }
+
+    private void pinAfterCommit() {
+        if (readYourWritesNanos <= 0 || replicas.isEmpty()
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pinnedUntil.set(System.nanoTime() + readYourWritesNanos);
+            }
+        });
+    }
+
+    private Replica nextHealthy() {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void markDown(SQLException cause) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Replica {} is unavailable, reading from the other replicas or the primary", name, cause);
+            }
+        }
+
+        private void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Replica {} is available again", name);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.StaleStateException;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PessimisticLockException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 트랜잭션을 실행하고, 동시성 충돌(낙관적 잠금 실패, 교착 상태, 직렬화 실패)로 실패하면 새 트랜잭션에서 다시 실행한다.
+ *
+ * 재시도 전에는 0 ~ min(maxBackoff, initialBackoff * 2^(재시도 - 1)) 사이의 임의 시간만큼 기다린다. (full jitter)
+ * 같은 행을 두고 충돌한 트랜잭션들이 같은 시각에 다시 충돌하지 않게 흩어 놓는다.
+ * 콜백은 매번 처음부터 다시 실행되므로 DB 밖의 부수 효과가 없어야 한다.
+ *
+ * <ul>
+ *     <li>transaction.attempts : 실행 횟수 (재시도 포함)</li>
+ *     <li>transaction.conflicts : 충돌로 실패한 횟수. conflicts / attempts 가 충돌률</li>
+ *     <li>transaction.retries : 성공 또는 포기하기까지의 재시도 횟수 분포</li>
+ *     <li>transaction.exhausted : 최대 실행 횟수까지 충돌해서 포기한 횟수</li>
+ * </ul>
+ * 모든 지표에 operation 태그가 붙는다.
+ */
+public class RetryingTransactionExecutor {
+
+    private final TransactionTemplate tx;
+    private final MeterRegistry registry;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Map<String, OperationMeters> meters = new ConcurrentHashMap<>();
+
+    public RetryingTransactionExecutor(PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                       int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.tx = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    /**
+     * @param operation 지표의 operation 태그. 호출하는 곳마다 고정된 값을 쓴다.
+     * @throws IllegalStateException 이미 트랜잭션 안에서 호출한 경우. 바깥 트랜잭션까지 롤백되므로 여기서 재시도할 수 없다.
+     */
+    public <T> T execute(String operation, TransactionCallback<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("RetryingTransactionExecutor must not be called inside a transaction: " + operation);
+        }
+        OperationMeters operationMeters = meters.computeIfAbsent(operation, OperationMeters::new);
+        for (int attempt = 1; ; attempt++) {
+            operationMeters.attempts.increment();
+            try {
+                T result = tx.execute(action);
+                operationMeters.retries.record(attempt - 1);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                operationMeters.conflicts.increment();
+                if (attempt >= maxAttempts || !backoff(attempt)) {
+                    operationMeters.retries.record(attempt - 1);
+                    operationMeters.exhausted.increment();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 기다리는 중에 인터럽트 되면 false
+     */
+    private boolean backoff(int attempt) {
+        // initialBackoff * 2^shift 가 maxBackoff 를 넘는지 먼저 확인해서 shift 가 커도 넘치지 않게 한다.
+        int shift = Math.min(attempt - 1, Long.SIZE - 2);
+        long ceiling = initialBackoffNanos > (maxBackoffNanos >> shift) ? maxBackoffNanos : initialBackoffNanos << shift;
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private final class OperationMeters {
+        private final Counter attempts;
+        private final Counter conflicts;
+        private final Counter exhausted;
+        private final DistributionSummary retries;
+
+        private OperationMeters(String operation) {
+            this.attempts = Counter.builder("transaction.attempts")
+                    .description("Transaction attempts including retries")
+                    .tag("operation", operation)
+                    .register(registry);
+            this.conflicts = Counter.builder("transaction.conflicts")
+                    .description("Attempts that failed with a concurrency conflict")
+                    .tag("operation", operation)
+                    .register(registry);
+            this.exhausted = Counter.builder("transaction.exhausted")
+                    .description("Executions that gave up after the last attempt conflicted")
+                    .tag("operation", operation)
+                    .register(registry);
+            this.retries = DistributionSummary.builder("transaction.retries")
+                    .description("Retries per execution")
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.manylove.study.jpa.entitymanager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.util.UUID;
+
+/**
+ * 샤드마다 EntityManager 하나와 트랜잭션 하나를 쓰는 작업 단위. 한 스레드에서만 사용한다.
+ *
+ * 처음 접근하는 샤드의 EntityManager 를 열고 트랜잭션을 시작한다. id 마다 샤드가 정해져 있으므로 세션 안에서 같은 id 는
+ * 항상 같은 EntityManager 가 관리한다. 따라서 1차 캐시(동일성 보장), 쓰기 지연, 변경 감지가 샤드가 하나일 때와 같이 동작한다.
+ *
+ * commit 은 모든 샤드를 먼저 flush 한 뒤 샤드 순서대로 커밋한다. 샤드를 묶는 분산 트랜잭션(2PC)이 아니므로,
+ * 커밋 도중 실패하면 앞서 커밋한 샤드의 변경은 남고 나머지 샤드는 롤백된다.
+ */
+public class ShardedMemberSession implements AutoCloseable {
+
+    private final MemberShards shards;
+    private final EntityManager[] entityManagers;
+
+    ShardedMemberSession(MemberShards shards) {
+        this.shards = shards;
+        this.entityManagers = new EntityManager[shards.size()];
+    }
+
+    /**
+     * id 가 없으면 시간 순서 UUID 를 먼저 부여한다. ( 샤드를 고르려면 id 가 있어야 한다. )
+     */
+    public void persist(Member member) {
+        if (member.getId() == null) {
+            member.setId(TimeOrderedUuidGenerator.next());
+        }
+        entityManager(member.getId()).persist(member);
+    }
+
+    public Member find(UUID id) {
+        return entityManager(id).find(Member.class, id);
+    }
+
+    public Member merge(Member member) {
+        return entityManager(requireId(member)).merge(member);
+    }
+
+    public void remove(Member member) {
+        entityManager(requireId(member)).remove(member);
+    }
+
+    public boolean contains(Member member) {
+        if (member.getId() == null) {
+            return false;
+        }
+        EntityManager em = entityManagers[shards.shardOf(member.getId())];
+        return em != null && em.contains(member);
+    }
+
+    public void flush() {
+        for (EntityManager em : entityManagers) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.flush();
+            }
+        }
+    }
+
+    /**
+     * 모든 샤드를 flush 한 뒤 차례로 커밋한다. 실패하면 아직 커밋하지 않은 샤드를 롤백하고 예외를 던진다.
+     * 커밋 후 다시 접근하면 새 트랜잭션을 시작한다.
+     */
+    public void commit() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        }
+        RuntimeException failure = null;
+        for (EntityManager em : entityManagers) {
+            if (em == null || !em.getTransaction().isActive()) {
+                continue;
+            }
+            if (failure != null) {
+                em.getTransaction().rollback();
+                continue;
+            }
+            try {
+                em.getTransaction().commit();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public void rollback() {
+        for (EntityManager em : entityManagers) {
+            if (em != null && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+    }
+
+    /**
+     * 커밋하지 않은 변경을 롤백하고 모든 EntityManager 를 닫는다.
+     */
+    @Override
+    public void close() {
+        try {
+            rollback();
+        } finally {
+            for (EntityManager em : entityManagers) {
+                if (em != null) {
+                    em.close();
+                }
+            }
+        }
+    }
+
+    private EntityManager entityManager(UUID id) {
+        int shard = shards.shardOf(id);
+        EntityManager em = entityManagers[shard];
+        if (em == null) {
+            em = shards.entityManagerFactory(shard).createEntityManager();
+            entityManagers[shard] = em;
+        }
+        EntityTransaction transaction = em.getTransaction();
+        if (!transaction.isActive()) {
+            transaction.begin();
+        }
+        return em;
+    }
+
+    private static UUID requireId(Member member) {
+        if (member.getId() == null) {
+            throw new IllegalArgumentException("Member id is required to choose a shard");
+        }
+        return member.getId();
+    }
+}
@@ -0,0 +1,23 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 충돌한 트랜잭션을 재시도하는 RetryingTransactionExecutor 를 등록한다.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(TransactionRetryProperties.class)
+public class TransactionRetryConfig {
+
+    @Bean
+    public RetryingTransactionExecutor retryingTransactionExecutor(PlatformTransactionManager transactionManager,
+                                                                   MeterRegistry meterRegistry,
+                                                                   TransactionRetryProperties properties) {
+        return new RetryingTransactionExecutor(transactionManager, meterRegistry, properties.getMaxAttempts(),
+                properties.getInitialBackoff(), properties.getMaxBackoff());
+    }
+}
@@ -0,0 +1,24 @@
+package me.manylove.study.jpa.entitymanager;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 충돌한 트랜잭션의 재시도 설정 ( member.transaction-retry.* )
+ */
+@Getter @Setter
+@ConfigurationProperties("member.transaction-retry")
+public class TransactionRetryProperties {
+
+    /** 처음 실행을 포함한 최대 실행 횟수. */
+    private int maxAttempts = 5;
+
+    /** 첫 재시도 전 대기 시간의 상한. 재시도마다 두 배로 늘어난다. */
+    private Duration initialBackoff = Duration.ofMillis(10);
+
+    /** 재시도 전 대기 시간의 최대 상한. */
+    private Duration maxBackoff = Duration.ofMillis(200);
+}
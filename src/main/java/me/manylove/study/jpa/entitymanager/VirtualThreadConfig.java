@@ -0,0 +1,38 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * member.threads.virtual=true 이면 Tomcat 요청 처리와 applicationTaskExecutor(@Async, MVC 비동기 요청)를 가상 스레드에서 실행한다.
+ *
+ * 요청 하나가 JDBC 응답을 기다리는 동안 플랫폼 스레드를 붙잡지 않으므로, 동시 요청 수가 Tomcat 스레드 수(기본 200)에 묶이지 않는다.
+ * 대신 커넥션 풀이 동시성의 상한이 된다. 풀이 바닥나면 가상 스레드는 HikariCP 에서 (carrier thread 를 놓고) 기다리다
+ * connection-timeout 후 실패하므로, 풀 크기와 connection-timeout 을 함께 보고 정해야 한다.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "member.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newExecutor("member-vt-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
@@ -0,0 +1,45 @@
+package me.manylove.study.jpa.entitymanager;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 작업마다 가상 스레드를 하나씩 만드는 ExecutorService.
+ *
+ * 소스는 Java 8 로 컴파일하므로 Java 21 API( Thread.ofVirtual(), Executors.newThreadPerTaskExecutor() )는 reflection 으로 호출한다.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param namePrefix 스레드 이름 앞부분. 뒤에 0 부터 순서대로 번호가 붙는다.
+     * @throws IllegalStateException Java 21 미만에서 실행한 경우
+     */
+    static ExecutorService newExecutor(String namePrefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later: " + System.getProperty("java.version"));
+        }
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+-- PostgreSQL 전용 스키마. ddl.sql 다음에 실행한다. (local 프로필의 H2 는 지원하지 않아 ddl.sql 과 분리)
+
+-- 이름 부분/유사 검색 (MemberSearchService) : 이름을 3글자 조각(trigram)으로 나눠 색인한다.
+-- 어플리케이션은 currentSchema=entitymanager 로 접속하므로 확장 함수/연산자도 같은 스키마에 만든다.
+-- 한글이 조각에 포함되려면 DB 의 LC_CTYPE 이 C 가 아니어야 한다. (예: en_US.utf8, ko_KR.utf8)
+create extension if not exists pg_trgm with schema entitymanager;
+create index if not exists member_name_trgm_idx on member using gin (name gin_trgm_ops);
@@ -1,13 +1,18 @@
-create table member (
+create table if not exists member (
     id uuid not null,
     name varchar(255),
     primary key (id)
 );
 
--- sample data
-INSERT INTO entitymanager.member (id, name) VALUES ('b0131310-42d8-4fc5-a123-273e01467268', '깅원화');
-INSERT INTO entitymanager.member (id, name) VALUES ('2e61abf6-3312-45d2-9e48-1e105a7fba0d', '오동규');
-INSERT INTO entitymanager.member (id, name) VALUES ('91905d95-5161-4246-805e-d50960bef07b', '이영천');
-INSERT INTO entitymanager.member (id, name) VALUES ('3f30bd6d-2630-4098-8e94-238d18df9013', '강원천');
+-- 이름순 목록의 keyset 페이지 조회 (MemberReadService.findPage)
+create index if not exists member_name_id_idx on member (name, id);
+
+-- 이름 부분/유사 검색용 trigram 인덱스 : ddl-postgresql.sql (PostgreSQL 전용)
+
+-- sample data (다시 실행해도 중복되지 않음)
+INSERT INTO entitymanager.member (id, name) VALUES ('b0131310-42d8-4fc5-a123-273e01467268', '깅원화') ON CONFLICT DO NOTHING;
+INSERT INTO entitymanager.member (id, name) VALUES ('2e61abf6-3312-45d2-9e48-1e105a7fba0d', '오동규') ON CONFLICT DO NOTHING;
+INSERT INTO entitymanager.member (id, name) VALUES ('91905d95-5161-4246-805e-d50960bef07b', '이영천') ON CONFLICT DO NOTHING;
+INSERT INTO entitymanager.member (id, name) VALUES ('3f30bd6d-2630-4098-8e94-238d18df9013', '강원천') ON CONFLICT DO NOTHING;
 -- INSERT INTO entitymanager.member (id, name) VALUES ('40d9f800-e64b-49f9-8654-a46b4d177af6', '권다애');
 
@@ -17,8 +17,9 @@ import static org.assertj.core.api.Assertions.*;
  * 1차 캐시, 동일성 보장, 트랜잭션을 지원하는 쓰기 지연, 변경감지
  *
  * 순서 3,4,5,6 연속 실행 해야 에러가 없음.
+ * Member 는 2차 캐시 대상이지만, 2차 캐시에서 가져오면 조회 쿼리가 보이지 않으므로 1차 캐시만 보도록 2차 캐시를 끈다.
  */
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
 @Transactional
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @Commit
@@ -173,6 +174,8 @@ public class Chapter002PersistenceContextHowItWorks {
         /**
          * [ 살펴볼 내용 ]
          * 1. 처음 영속화 시 내용과 최종 변경 내용에 차이가 없으므로 업데이트 쿼리가 발생하지 않음 ( 스냅샷에 의한 변경 감지 )
+         * ※ 바이트코드 향상(dirty tracking)으로 빌드한 경우에는 스냅샷이 아닌 setter 호출 이력으로 변경을 판단하므로 업데이트 쿼리가 발생한다.
+         *   스냅샷 비교 방식을 확인하려면 -PskipEnhancement 로 실행한다.
          */
     }
 
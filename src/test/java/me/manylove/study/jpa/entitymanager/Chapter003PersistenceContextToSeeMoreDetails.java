@@ -15,8 +15,9 @@ import static org.assertj.core.api.Assertions.assertThat;
  * Chapter 3. Persistence Context 기능 상세 보기
  * flush, detach, clear, close, merge
  *
+ * clear/detach 후의 재조회가 2차 캐시가 아닌 DB 조회로 보이도록 2차 캐시를 끈다.
  */
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.cache.use_second_level_cache=false")
 @Transactional
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @Commit
@@ -70,6 +71,7 @@ public class Chapter003PersistenceContextToSeeMoreDetails {
         /**
          * [ 살펴볼 내용 ]
          * 1. flush가 없는 경우는 최종 스냅샷 내용이 최종 엔티티 내용과 동일함으로 업데이트 쿼리를 발생시키지 않는다.
+         * ※ 바이트코드 향상(dirty tracking)으로 빌드한 경우에는 setter 호출 이력으로 변경을 판단하므로 업데이트 쿼리가 발생한다. ( -PskipEnhancement 와 비교 )
          */
     }
 
@@ -0,0 +1,64 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * 커넥션 풀 크기에 따른 처리량과 p99 지연시간.
+ *
+ * 요청 하나는 커넥션을 빌려 PK 조회 한번과 짧은 DB 작업(pg_sleep 1ms)을 하고 반납한다.
+ * 동시 사용자 수는 -Dbenchmark.clients (기본 200) 로 바꿀 수 있다.
+ */
+@SpringBootTest
+@Tag("benchmark")
+@Tag("postgresql")
+class ConnectionPoolLoadTest {
+    private static final UUID YOUNG1000_ID = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    @Autowired
+    private Environment environment;
+
+    @Test
+    @DisplayName("[benchmark] 풀 크기별 처리량, p99")
+    void poolSize() throws Exception {
+        int clients = Integer.getInteger("benchmark.clients", 200);
+        Duration duration = Duration.ofSeconds(Long.getLong("benchmark.seconds", 10L));
+
+        int[] poolSizes = {2, 5, HikariPoolSizer.recommendedPoolSize(environment), 50, 100};
+
+        for (int poolSize : poolSizes) {
+            try (HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build()) {
+                dataSource.setMaximumPoolSize(poolSize);
+                dataSource.setConnectionTimeout(30_000);
+
+                LoadGenerator.Result result = LoadGenerator.run(clients, duration, () -> {
+                    try (Connection connection = dataSource.getConnection();
+                         PreparedStatement statement = connection.prepareStatement(
+                                 "select name, pg_sleep(0.001) from member where id = ?")) {
+                        statement.setObject(1, YOUNG1000_ID);
+                        try (ResultSet resultSet = statement.executeQuery()) {
+                            return resultSet.next();
+                        }
+                    }
+                });
+                System.out.printf("=== pool %3d, clients %d : %s ===%n", poolSize, clients, result);
+            }
+        }
+    }
+}
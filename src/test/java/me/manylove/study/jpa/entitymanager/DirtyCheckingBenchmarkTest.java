@@ -0,0 +1,67 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * 변경 감지 비용 : 스냅샷 비교 vs 바이트코드 향상(dirty tracking)
+ *
+ * 같은 테스트를 두 번 실행해서 비교한다.
+ *   ./gradlew benchmark --tests '*DirtyCheckingBenchmarkTest'
+ *   ./gradlew benchmark --tests '*DirtyCheckingBenchmarkTest' -PskipEnhancement
+ */
+@SpringBootTest
+@Transactional
+@Tag("benchmark")
+class DirtyCheckingBenchmarkTest {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int DIRTY = 10;
+
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    @DisplayName("[benchmark] 관리 중인 엔티티 수에 따른 flush 시간과 heap 사용량")
+    void flush() {
+        int max = SIZES[SIZES.length - 1];
+        bulkService.persistAll(IntStream.range(0, max).mapToObj(i -> new Member(UUID.randomUUID(), "dirty-" + i)));
+
+        String mode = SelfDirtinessTracker.class.isAssignableFrom(Member.class) ? "enhanced" : "snapshot";
+        for (int size : SIZES) {
+            em.clear();
+            long heapBefore = usedHeap();
+            List<Member> members = em.createQuery("select m from Member m where m.name like 'dirty-%'", Member.class)
+                    .setMaxResults(size)
+                    .getResultList();
+            long heap = usedHeap() - heapBefore;
+
+            for (int i = 0; i < DIRTY; i++) {
+                members.get(i).setName("changed-" + i);
+            }
+            long start = System.nanoTime();
+            em.flush();
+            long flushNanos = System.nanoTime() - start;
+
+            System.out.printf("=== [%s] managed %,d (dirty %d) : flush %,.2f ms, heap %,d KB ===%n",
+                    mode, size, DIRTY, flushNanos / 1e6, heap / 1024);
+        }
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,117 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 부하 테스트용 : clients 개의 스레드가 duration 동안 task 를 반복 호출하고, 호출별 지연시간을 모은다.
+ * 논블로킹 task 는 runAsync : 스레드 없이 concurrency 개의 요청을 동시에 진행한다.
+ */
+final class LoadGenerator {
+
+    private LoadGenerator() {
+    }
+
+    static Result run(int clients, Duration duration, Callable<?> task) throws InterruptedException {
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < clients; i++) {
+                executor.execute(() -> {
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            long begin = System.nanoTime();
+                            try {
+                                task.call();
+                                histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin));
+                            } catch (Exception e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(histogram, errors.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * concurrency 개의 요청이 duration 동안 끊이지 않도록, 하나가 끝나면 task 로 다음 요청을 구독한다.
+     */
+    static Result runAsync(int concurrency, Duration duration, Supplier<? extends Publisher<?>> task) {
+        Histogram histogram = new ConcurrentHistogram(3);
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        Flux.range(0, concurrency)
+                .flatMap(client -> Mono.defer(() -> {
+                            long begin = System.nanoTime();
+                            return Flux.from(task.get())
+                                    .then()
+                                    .doOnSuccess(ignored ->
+                                            histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - begin)))
+                                    .onErrorResume(e -> {
+                                        errors.incrementAndGet();
+                                        return Mono.empty();
+                                    });
+                        })
+                        .repeat(() -> System.nanoTime() < deadline), concurrency)
+                .blockLast();
+        return new Result(histogram, errors.get(), System.nanoTime() - start);
+    }
+
+    static final class Result {
+        private final Histogram histogram;
+        private final long errors;
+        private final long elapsedNanos;
+
+        private Result(Histogram histogram, long errors, long elapsedNanos) {
+            this.histogram = histogram;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double throughput() {
+            return histogram.getTotalCount() * 1e9 / elapsedNanos;
+        }
+
+        long p50Micros() {
+            return histogram.getValueAtPercentile(50);
+        }
+
+        long p99Micros() {
+            return histogram.getValueAtPercentile(99);
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,.0f ops/s, p50 %,d us, p99 %,d us, errors %,d",
+                    throughput(), p50Micros(), p99Micros(), errors);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * local 프로필로 테스트할 때, 테스트 클래스마다 별도의 메모리 DB( member.local-db.name )를 사용하게 한다.
+ *
+ * 한 테스트 클래스가 커밋한 데이터(Chapter 테스트의 @Commit)가 다른 테스트 클래스에 영향을 주지 않으므로,
+ * 테스트 클래스를 병렬로 실행할 수 있다. 대신 테스트 클래스끼리 스프링 컨텍스트를 공유하지 않는다.
+ */
+class LocalDatabaseContextCustomizerFactory implements ContextCustomizerFactory {
+
+    @Override
+    public ContextCustomizer createContextCustomizer(Class<?> testClass, List<ContextConfigurationAttributes> configAttributes) {
+        if (!isLocalProfile()) {
+            return null;
+        }
+        return new LocalDatabaseContextCustomizer(testClass.getName().replaceAll("[^A-Za-z0-9_]", "_"));
+    }
+
+    private static boolean isLocalProfile() {
+        String profiles = System.getProperty("spring.profiles.active", System.getenv("SPRING_PROFILES_ACTIVE"));
+        return profiles != null && Arrays.stream(profiles.split(",")).map(String::trim).anyMatch("local"::equals);
+    }
+
+    private static final class LocalDatabaseContextCustomizer implements ContextCustomizer {
+        private final String databaseName;
+
+        LocalDatabaseContextCustomizer(String databaseName) {
+            this.databaseName = databaseName;
+        }
+
+        @Override
+        public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+            TestPropertyValues.of("member.local-db.name=" + databaseName).applyTo(context);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof LocalDatabaseContextCustomizer
+                    && databaseName.equals(((LocalDatabaseContextCustomizer) other).databaseName);
+        }
+
+        @Override
+        public int hashCode() {
+            return databaseName.hashCode();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 대량 저장 (JDBC batch + 주기적인 flush/clear)
+ *
+ * 모든 테스트는 롤백되므로 DB 에 데이터가 남지 않는다.
+ */
+@SpringBootTest
+@Transactional
+class MemberBulkServiceTest {
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    @DisplayName("chunk 단위로 저장하고 영속성 컨텍스트를 비운다")
+    void persistAll() {
+        long saved = bulkService.persistAll(members("bulk-", 1203));
+
+        assertThat(saved).isEqualTo(1203);
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        Long count = em.createQuery("select count(m) from Member m where m.name like 'bulk-%'", Long.class)
+                .getSingleResult();
+        assertThat(count).isEqualTo(1203);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] 건별 INSERT vs batch INSERT")
+    void throughput() {
+        int rows = Integer.getInteger("benchmark.rows", 100_000);
+
+        // 비교 대상 : batch 없이 건별 INSERT, 마지막에 한번만 flush
+        Session session = em.unwrap(Session.class);
+        session.setJdbcBatchSize(1);
+        long start = System.nanoTime();
+        members("single-", rows).forEach(em::persist);
+        em.flush();
+        em.clear();
+        long singleNanos = System.nanoTime() - start;
+        session.setJdbcBatchSize(null);
+
+        start = System.nanoTime();
+        bulkService.persistAll(members("batch-", rows));
+        long batchNanos = System.nanoTime() - start;
+
+        System.out.println("=== rows : " + rows + " ===");
+        System.out.printf("=== 건별 INSERT  : %,d ms (%,.0f rows/s) ===%n", singleNanos / 1_000_000, rows * 1e9 / singleNanos);
+        System.out.printf("=== batch INSERT : %,d ms (%,.0f rows/s) ===%n", batchNanos / 1_000_000, rows * 1e9 / batchNanos);
+    }
+
+    private Stream<Member> members(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Member(UUID.randomUUID(), prefix + i));
+    }
+}
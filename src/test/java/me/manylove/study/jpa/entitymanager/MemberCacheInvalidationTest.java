@@ -0,0 +1,113 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * 인스턴스 사이의 2차 캐시 무효화 (LISTEN/NOTIFY)
+ *
+ * 한 JVM 에 애플리케이션 컨텍스트 두 개(node A, node B)를 띄우고, 같은 DB 를 사용한다.
+ */
+@Tag("postgresql")
+class MemberCacheInvalidationTest {
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = start();
+        nodeB = start();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    @DisplayName("다른 인스턴스에서 수정/삭제를 커밋하면 캐시에서 해당 id 만 제거된다")
+    void invalidate() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        tx(nodeA).executeWithoutResult(status -> {
+            em(nodeA).persist(new Member(id, "권다애"));
+            em(nodeA).persist(new Member(other, "권다온"));
+        });
+
+        tx(nodeB).executeWithoutResult(status -> {
+            em(nodeB).find(Member.class, id);
+            em(nodeB).find(Member.class, other);
+        });
+        assertThat(cached(nodeB, id)).isTrue();
+
+        System.out.println("=== node A 수정 커밋 전 ===");
+        tx(nodeA).executeWithoutResult(status -> em(nodeA).find(Member.class, id).setName("권영애"));
+        System.out.println("=== node A 수정 커밋 후 ===");
+
+        awaitUntil(() -> !cached(nodeB, id));
+        assertThat(cached(nodeB, other)).isTrue();
+        String name = tx(nodeB).execute(status -> em(nodeB).find(Member.class, id).getName());
+        assertThat(name).isEqualTo("권영애");
+
+        tx(nodeA).executeWithoutResult(status -> {
+            em(nodeA).remove(em(nodeA).find(Member.class, id));
+            em(nodeA).remove(em(nodeA).find(Member.class, other));
+        });
+
+        awaitUntil(() -> !cached(nodeB, id) && !cached(nodeB, other));
+        Member removed = tx(nodeB).execute(status -> em(nodeB).find(Member.class, id));
+        assertThat(removed).isNull();
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. node A 의 캐시는 Hibernate 가 커밋 시 갱신하고, node B 의 캐시는 NOTIFY 를 받은 뒤 제거된다.
+         * 2. node B 는 제거된 id 만 DB 에서 다시 읽는다. 수정하지 않은 other 는 캐시에 남아 있다.
+         */
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(EntitymanagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("member.cache.invalidation.enabled=true")
+                .run();
+    }
+
+    private boolean cached(ConfigurableApplicationContext node, UUID id) {
+        return node.getBean(EntityManagerFactory.class).getCache().contains(Member.class, id);
+    }
+
+    private TransactionTemplate tx(ConfigurableApplicationContext node) {
+        return node.getBean(TransactionTemplate.class);
+    }
+
+    private EntityManager em(ConfigurableApplicationContext node) {
+        return node.getBean(EntityManager.class);
+    }
+
+    private void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not met within 5 seconds");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
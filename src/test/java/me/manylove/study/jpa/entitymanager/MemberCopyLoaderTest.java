@@ -0,0 +1,108 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * COPY ... FROM STDIN 으로 대량 적재
+ *
+ * 모든 테스트는 롤백되므로 DB 에 데이터가 남지 않는다.
+ */
+@SpringBootTest
+@Transactional
+@Tag("postgresql")
+class MemberCopyLoaderTest {
+    private static final UUID YOUNG1000_ID = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+    @Autowired
+    private MemberCopyLoader copyLoader;
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Test
+    @DisplayName("COPY 로 적재한다")
+    void load() {
+        MemberCopyResult result = copyLoader.load(members("copy-", 1203));
+
+        assertThat(result.getRows()).isEqualTo(1203);
+        assertThat(count("copy-%")).isEqualTo(1203);
+    }
+
+    @Test
+    @DisplayName("따옴표, 쉼표, 줄바꿈, 빈 문자열, null 이름을 그대로 적재한다")
+    void csvEscaping() {
+        UUID quoted = UUID.randomUUID();
+        UUID empty = UUID.randomUUID();
+        UUID nullName = UUID.randomUUID();
+
+        copyLoader.load(Stream.of(
+                new Member(quoted, "\"권\",다\n애"),
+                new Member(empty, ""),
+                new Member(nullName, null)));
+
+        assertThat(em.find(Member.class, quoted).getName()).isEqualTo("\"권\",다\n애");
+        assertThat(em.find(Member.class, empty).getName()).isEmpty();
+        assertThat(em.find(Member.class, nullName).getName()).isNull();
+    }
+
+    @Test
+    @DisplayName("임시 테이블에 적재한 뒤 upsert 한다")
+    void loadAndUpsert() {
+        UUID created = UUID.randomUUID();
+        // 2차 캐시에 이전 값을 올려 두고, 영속성 컨텍스트에서는 뺀다.
+        em.find(Member.class, YOUNG1000_ID);
+        em.clear();
+        assertThat(emf.getCache().contains(Member.class, YOUNG1000_ID)).isTrue();
+
+        copyLoader.loadAndUpsert(Stream.of(
+                new Member(YOUNG1000_ID, "이영일"),
+                new Member(created, "권다애"),
+                new Member(YOUNG1000_ID, "이영이")));
+
+        assertThat(em.find(Member.class, YOUNG1000_ID).getName()).isEqualTo("이영이");
+        assertThat(em.find(Member.class, created).getName()).isEqualTo("권다애");
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] batch INSERT vs COPY")
+    void throughput() {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+
+        long start = System.nanoTime();
+        bulkService.persistAll(members("batch-", rows));
+        long batchNanos = System.nanoTime() - start;
+
+        MemberCopyResult copy = copyLoader.load(members("copy-", rows));
+
+        System.out.println("=== rows : " + rows + " ===");
+        System.out.printf("=== batch INSERT : %,d ms (%,.0f rows/s) ===%n", batchNanos / 1_000_000, rows * 1e9 / batchNanos);
+        System.out.printf("=== COPY         : %,d ms (%,.0f rows/s) ===%n", copy.getElapsedNanos() / 1_000_000, copy.getRowsPerSecond());
+    }
+
+    private long count(String pattern) {
+        return em.createQuery("select count(m) from Member m where m.name like :pattern", Long.class)
+                .setParameter("pattern", pattern)
+                .getSingleResult();
+    }
+
+    private Stream<Member> members(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Member(UUID.randomUUID(), prefix + i));
+    }
+}
@@ -0,0 +1,111 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * member 테이블 전체 내보내기 (DB cursor 스트리밍)
+ */
+@SpringBootTest
+class MemberExportServiceTest {
+    @Autowired
+    private MemberExportService exportService;
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Test
+    @DisplayName("Stream 으로 전체 Member 를 읽는다")
+    void stream() {
+        Long total = tx.execute(status -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+
+        try (Stream<Member> members = exportService.streamAll()) {
+            assertThat(members.count()).isEqualTo(total);
+        }
+    }
+
+    @Test
+    @DisplayName("CSV 로 내보내기")
+    void csv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.writeCsv(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(lines[0]).isEqualTo("id,name");
+        assertThat(lines).hasSize((int) count + 1);
+        assertThat(lines).contains("91905d95-5161-4246-805e-d50960bef07b,이영천");
+    }
+
+    @Test
+    @DisplayName("NDJSON 으로 내보내기")
+    void ndjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.writeNdjson(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize((int) count);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.has("id")).isTrue();
+        assertThat(first.has("name")).isTrue();
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] 전체 내보내기 중 최대 heap 사용량")
+    void peakHeap() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        tx.executeWithoutResult(status -> bulkService.persistAll(
+                IntStream.range(0, rows).mapToObj(i -> new Member(UUID.randomUUID(), "export-" + i))));
+        try {
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long start = System.nanoTime();
+            long count = exportService.writeNdjson(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            });
+            long elapsed = System.nanoTime() - start;
+
+            long peak = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP)
+                    .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                    .sum();
+            System.out.printf("=== NDJSON %,d rows : %,d ms (%,.0f rows/s), peak heap %,d MB ===%n",
+                    count, elapsed / 1_000_000, count * 1e9 / elapsed, peak / (1024 * 1024));
+        } finally {
+            tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.name like 'export-%'").executeUpdate());
+        }
+    }
+}
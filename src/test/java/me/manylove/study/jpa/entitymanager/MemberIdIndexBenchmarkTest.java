@@ -0,0 +1,55 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 랜덤 UUID(v4) 와 시간 순서 UUID(v7) 의 INSERT 처리량, PK 인덱스 증가량 비교.
+ *
+ * 테스트는 롤백되지만, 인덱스가 늘어난 크기는 VACUUM 전까지 그대로 남는다.
+ */
+@SpringBootTest
+@Transactional
+@Tag("benchmark")
+@Tag("postgresql")
+class MemberIdIndexBenchmarkTest {
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    @DisplayName("[benchmark] UUID v4 vs v7")
+    void randomVersusTimeOrdered() {
+        int rows = Integer.getInteger("benchmark.rows", 200_000);
+
+        run("v4 (UUID.randomUUID)", rows, i -> new Member(UUID.randomUUID(), "v4-" + i));
+        // id 를 비워두면 Member 의 @PrePersist 에서 시간 순서 UUID 를 부여한다.
+        run("v7 (TimeOrderedUuidGenerator)", rows, i -> new Member(null, "v7-" + i));
+    }
+
+    private void run(String label, int rows, IntFunction<Member> factory) {
+        long indexBefore = indexSize();
+        long start = System.nanoTime();
+        bulkService.persistAll(IntStream.range(0, rows).mapToObj(factory));
+        long elapsed = System.nanoTime() - start;
+        long indexGrowth = indexSize() - indexBefore;
+
+        System.out.printf("=== %s : %,d rows, %,d ms (%,.0f rows/s), member_pkey +%,d KB ===%n",
+                label, rows, elapsed / 1_000_000, rows * 1e9 / elapsed, indexGrowth / 1024);
+    }
+
+    private long indexSize() {
+        Object size = em.createNativeQuery("select pg_relation_size('member_pkey')").getSingleResult();
+        return ((Number) size).longValue();
+    }
+}
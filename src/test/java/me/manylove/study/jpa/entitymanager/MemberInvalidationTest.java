@@ -0,0 +1,34 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인스턴스 사이 캐시 무효화 메시지(NOTIFY payload) 형식
+ */
+class MemberInvalidationTest {
+
+    @Test
+    @DisplayName("많은 id 는 8000 bytes 보다 작은 메시지 여러 개로 나누어 보낸다")
+    void split() {
+        List<UUID> ids = IntStream.range(0, 1000).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+        String nodeId = UUID.randomUUID().toString();
+
+        List<String> payloads = MemberInvalidation.encode(nodeId, ids);
+
+        assertThat(payloads).hasSizeGreaterThan(1)
+                .allMatch(payload -> payload.length() <= MemberInvalidation.MAX_PAYLOAD_LENGTH);
+        assertThat(payloads.stream()
+                .map(MemberInvalidation::decode)
+                .peek(invalidation -> assertThat(invalidation.getNodeId()).isEqualTo(nodeId))
+                .flatMap(invalidation -> invalidation.getIds().stream()))
+                .containsExactlyElementsOf(ids);
+    }
+}
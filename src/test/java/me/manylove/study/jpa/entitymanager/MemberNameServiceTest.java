@@ -0,0 +1,90 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * write-behind 를 켠 이름 변경 : 반영 전에도 단건 조회는 새 이름을 보여 준다.
+ * flush-interval 을 길게 두어 테스트 중에는 직접 flush 할 때만 쓴다.
+ */
+@SpringBootTest(properties = {
+        "member.write-behind.enabled=true",
+        "member.write-behind.flush-interval=1h"
+})
+@Tag("postgresql")
+class MemberNameServiceTest {
+
+    @Autowired
+    private MemberNameService nameService;
+    @Autowired
+    private MemberReadService readService;
+    @Autowired
+    private MemberWriteBehindBuffer buffer;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+
+    private UUID id;
+
+    @BeforeEach
+    void createMember() {
+        Member member = new Member(null, "권다애");
+        tx.executeWithoutResult(status -> em.persist(member));
+        id = member.getId();
+    }
+
+    @AfterEach
+    void removeMember() {
+        buffer.flush();
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+    }
+
+    @Test
+    @DisplayName("버퍼에 있는 이름은 DB 에 반영되기 전에도 findView 에 보인다")
+    void readPendingName() {
+        boolean updated = nameService.updateName(id, "권다애-수정");
+
+        assertThat(updated).isTrue();
+        Optional<MemberView> stored = readService.findView(id);
+        assertThat(stored.map(MemberView::getName)).contains("권다애");
+        Optional<MemberView> view = nameService.findView(id);
+        assertThat(view.map(MemberView::getName)).contains("권다애-수정");
+
+        System.out.println("=== flush ===");
+        buffer.flush();
+
+        Optional<MemberView> written = readService.findView(id);
+        assertThat(written.map(MemberView::getName)).contains("권다애-수정");
+        assertThat(buffer.pendingName(id)).isEmpty();
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. updateName 은 SELECT(또는 2차 캐시) 한번으로 존재만 확인하고 UPDATE 없이 반환한다.
+         * 2. flush 에서 batch UPDATE 한번으로 쓴다.
+         */
+    }
+
+    @Test
+    @DisplayName("없는 Member 의 이름은 버퍼에 넣지 않는다")
+    void missing() {
+        UUID missing = TimeOrderedUuidGenerator.next();
+
+        boolean updated = nameService.updateName(missing, "없음");
+
+        assertThat(updated).isFalse();
+        assertThat(buffer.pendingName(missing)).isEmpty();
+    }
+}
@@ -0,0 +1,101 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 동시 요청 수(64, 512, 2048)에 따른 단건 조회 : JPA(요청마다 스레드) vs R2DBC(논블로킹)
+ *
+ *   ./gradlew benchmark --tests '*MemberReactiveLoadTest'
+ * 조건마다 두 번 실행한다.
+ *   1. duration 동안 처리량과 p99 측정
+ *   2. 다시 실행하는 도중에 GC 후 heap 사용량과 스레드 수를 재서, 실행 전과의 차이를 동시 요청 수로 나눈 값 ( 진행 중인 요청당 메모리 )
+ * JPA 쪽은 스레드마다 스택(-Xss, 기본 1MB 예약)을 heap 밖에 따로 쓰므로 스레드 수도 함께 출력한다.
+ * 두 경로 모두 커넥션 수보다 동시 요청이 많으면 커넥션을 기다린다. JPA 는 스레드가 멈춰서, R2DBC 는 대기열에서 기다린다.
+ */
+@SpringBootTest(properties = "member.r2dbc.enabled=true")
+@Tag("benchmark")
+@Tag("postgresql")
+class MemberReactiveLoadTest {
+    private static final String PREFIX = "reactive-load-";
+    private static final int[] CONCURRENCY = {64, 512, 2048};
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private MemberReactiveRepository reactiveRepository;
+    @Autowired
+    private MemberReadService readService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("[benchmark] 동시 요청 수별 JPA vs R2DBC 처리량, p99, 요청당 메모리")
+    void findById() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 100_000);
+        Duration duration = Duration.ofSeconds(Long.getLong("benchmark.seconds", 10L));
+
+        jdbcTemplate.update("delete from member where name like ?", PREFIX + "%");
+        reactiveRepository.insertAll(Flux.range(0, rows).map(i -> new Member(null, PREFIX + i))).block();
+        List<UUID> ids = jdbcTemplate.queryForList("select id from member where name like ?", UUID.class, PREFIX + "%");
+        try {
+            for (int concurrency : CONCURRENCY) {
+                Callable<LoadGenerator.Result> jpa = () -> LoadGenerator.run(concurrency, duration,
+                        () -> readService.findView(randomId(ids)));
+                System.out.printf("=== [jpa]   concurrency %,d : %s, %s ===%n", concurrency, jpa.call(), footprint(concurrency, jpa));
+
+                Callable<LoadGenerator.Result> r2dbc = () -> LoadGenerator.runAsync(concurrency, duration,
+                        () -> reactiveRepository.findById(randomId(ids)));
+                System.out.printf("=== [r2dbc] concurrency %,d : %s, %s ===%n", concurrency, r2dbc.call(), footprint(concurrency, r2dbc));
+            }
+        } finally {
+            jdbcTemplate.update("delete from member where name like ?", PREFIX + "%");
+        }
+    }
+
+    /**
+     * load 를 실행하고 절반쯤 지났을 때 heap 사용량과 스레드 수를 잰다.
+     */
+    private String footprint(int concurrency, Callable<LoadGenerator.Result> load) throws Exception {
+        long heapBefore = usedHeap();
+        int threadsBefore = THREADS.getThreadCount();
+
+        CompletableFuture<LoadGenerator.Result> running = CompletableFuture.supplyAsync(() -> {
+            try {
+                return load.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        Thread.sleep(Long.getLong("benchmark.seconds", 10L) * 500);
+        long heap = usedHeap() - heapBefore;
+        int threads = THREADS.getThreadCount() - threadsBefore;
+        running.join();
+
+        return String.format("heap/in-flight %,d B, threads +%,d", Math.max(heap, 0) / concurrency, threads);
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static UUID randomId(List<UUID> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,116 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * R2DBC Member 저장소. 테스트 안에서 block 으로 결과를 기다린다.
+ *
+ * R2DBC 는 스프링 트랜잭션에 참여하지 않으므로 저장한 데이터는 커밋된다. 테스트가 끝나면 지운다.
+ *
+ * [ 살펴볼 내용 ]
+ * findAll 은 구독자가 요청한 만큼만 DB 에서 가져온다. take 로 구독을 취소하면 남은 행을 읽지 않고 커넥션을 풀에 돌려준다.
+ */
+@SpringBootTest(properties = "member.r2dbc.enabled=true")
+@Tag("postgresql")
+class MemberReactiveRepositoryTest {
+    private static final String PREFIX = "reactive-";
+
+    @Autowired
+    private MemberReactiveRepository repository;
+    @Autowired
+    private MemberR2dbcProperties properties;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from member where name like ?", PREFIX + "%");
+    }
+
+    @Test
+    @DisplayName("저장, 조회, 수정, 삭제")
+    void crud() {
+        Member saved = repository.insert(new Member(null, PREFIX + "crud")).block();
+        UUID id = saved.getId();
+        assertThat(id).isNotNull();
+        assertThat(repository.findById(id).block().getName()).isEqualTo(PREFIX + "crud");
+
+        assertThat(repository.updateName(id, PREFIX + "renamed").block()).isTrue();
+        assertThat(repository.findById(id).block().getName()).isEqualTo(PREFIX + "renamed");
+
+        assertThat(repository.deleteById(id).block()).isTrue();
+        assertThat(repository.findById(id).block()).isNull();
+        assertThat(repository.deleteById(id).block()).isFalse();
+    }
+
+    @Test
+    @DisplayName("R2DBC 로 수정하면 2차 캐시에서 제거되어 JPA 로 다시 읽을 때 바뀐 값을 본다")
+    void evictsSecondLevelCache() {
+        UUID id = repository.insert(new Member(null, PREFIX + "cached")).block().getId();
+        tx.execute(status -> em.find(Member.class, id));   // 2차 캐시에 올림
+
+        repository.updateName(id, PREFIX + "changed").block();
+
+        Member member = tx.execute(status -> em.find(Member.class, id));
+        assertThat(member.getName()).isEqualTo(PREFIX + "changed");
+    }
+
+    @Test
+    @DisplayName("insertAll 은 batch 단위로 저장하고, findAll 은 모든 행을 스트리밍한다")
+    void insertAllAndStream() {
+        int rows = properties.getBatchSize() * 3 + 7;
+
+        Long inserted = repository.insertAll(Flux.range(0, rows).map(i -> new Member(null, PREFIX + i))).block();
+
+        assertThat(inserted).isEqualTo(rows);
+        Long streamed = repository.findAll()
+                .filter(member -> member.getName() != null && member.getName().startsWith(PREFIX))
+                .count()
+                .block();
+        assertThat(streamed).isEqualTo(rows);
+    }
+
+    @Test
+    @DisplayName("insertAll 이 중간에 실패하면 앞서 보낸 batch 까지 모두 롤백한다")
+    void insertAllRollsBack() {
+        UUID duplicate = UUID.randomUUID();
+        Flux<Member> members = Flux.range(0, properties.getBatchSize() + 1)
+                .map(i -> new Member(i == 0 || i == properties.getBatchSize() ? duplicate : null, PREFIX + i));
+
+        assertThatThrownBy(() -> repository.insertAll(members).block())
+                .isInstanceOf(R2dbcDataIntegrityViolationException.class);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member where name like ?", Long.class, PREFIX + "%"))
+                .isZero();
+    }
+
+    @Test
+    @DisplayName("구독을 취소하면 커넥션을 돌려준다 : 풀 크기보다 많이 취소해도 커넥션을 기다리지 않는다")
+    void cancelReleasesConnection() {
+        repository.insertAll(Flux.range(0, 100).map(i -> new Member(null, PREFIX + i))).block();
+
+        for (int i = 0; i < properties.getMaxSize() * 3; i++) {
+            List<Member> first = repository.findAll().limitRate(10).take(5).collectList().block();
+            assertThat(first).hasSize(5);
+        }
+    }
+}
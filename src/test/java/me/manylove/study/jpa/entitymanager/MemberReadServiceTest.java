@@ -0,0 +1,190 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.sun.management.ThreadMXBean;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 조회 전용 API : 영속성 컨텍스트에 아무것도 남기지 않는 조회
+ */
+@SpringBootTest
+class MemberReadServiceTest {
+    @Autowired
+    private MemberReadService readService;
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private MemberCopyLoader copyLoader;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Test
+    @DisplayName("DTO 조회는 1차 캐시에 엔티티를 남기지 않는다")
+    void views() {
+        UUID leeId = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+        Integer managed = tx.execute(status -> {
+            assertThat(readService.findView(leeId)).map(MemberView::getName).contains("이영천");
+            assertThat(readService.findAllViews()).isNotEmpty();
+            return em.unwrap(Session.class).getStatistics().getEntityCount();
+        });
+
+        assertThat(managed).isZero();
+    }
+
+    @Test
+    @DisplayName("stateless session 으로 조회한 엔티티는 준영속 상태다")
+    void detached() {
+        tx.executeWithoutResult(status -> {
+            List<Member> members = readService.findAllDetached();
+
+            assertThat(members).isNotEmpty();
+            assertThat(members).noneMatch(em::contains);
+        });
+    }
+
+    @Test
+    @DisplayName("keyset 페이지를 끝까지 넘기면 모든 Member 를 한번씩, 이름순으로 읽는다")
+    void pages() {
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            bulkService.persistAll(IntStream.range(0, 45).mapToObj(i -> new Member(UUID.randomUUID(), "page-" + i % 7)));
+            bulkService.persistAll(IntStream.range(0, 12).mapToObj(i -> new Member(UUID.randomUUID(), null)));
+            long total = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+
+            List<MemberView> read = new ArrayList<>();
+            MemberPage page = readService.findPage(null, 10);
+            read.addAll(page.getContent());
+            while (page.getNext() != null) {
+                page = readService.findPage(page.getNext(), 10);
+                read.addAll(page.getContent());
+            }
+
+            assertThat(read).hasSize((int) total);
+            assertThat(new HashSet<>(read)).hasSize((int) total);
+            int firstUnnamed = (int) read.stream().filter(view -> view.getName() != null).count();
+            assertThat(read.subList(0, firstUnnamed)).allMatch(view -> view.getName() != null);
+            assertThat(read.subList(firstUnnamed, read.size())).hasSizeGreaterThanOrEqualTo(12);
+        });
+
+        assertThatThrownBy(() -> readService.findPage("not-a-token", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> readService.findPage(null, 0)).isInstanceOf(IllegalArgumentException.class);
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. 이름이 같은 Member 는 id 순으로, 이름이 없는 Member 는 마지막에 id 순으로 읽는다.
+         * 2. 다음 페이지 쿼리는 OFFSET 없이 where m.name >= ? and (m.name > ? or m.id > ?) 로 실행된다.
+         */
+    }
+
+    @Test
+    @Tag("benchmark")
+    @Tag("postgresql")
+    @DisplayName("[benchmark] OFFSET vs keyset : 1 페이지와 10,000 페이지의 조회 시간")
+    void pageLatency() {
+        int size = 20;
+        int lastPage = Integer.getInteger("benchmark.pages", 10_000);
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            copyLoader.load(IntStream.range(0, size * lastPage + size)
+                    .mapToObj(i -> new Member(UUID.randomUUID(), "page-" + UUID.randomUUID())));
+            em.createNativeQuery("analyze member").executeUpdate();
+
+            String token = null;
+            for (int page = 1; page < lastPage; page++) {
+                token = readService.findPage(token, size).getNext();
+            }
+            String lastToken = token;
+
+            for (int round = 0; round < 3; round++) {
+                System.out.println("=== round " + (round + 1) + " ===");
+                time("OFFSET 1 페이지", () -> offsetPage(0, size));
+                time("OFFSET " + lastPage + " 페이지", () -> offsetPage((lastPage - 1) * size, size));
+                time("keyset 1 페이지", () -> readService.findPage(null, size).getContent().size());
+                time("keyset " + lastPage + " 페이지", () -> readService.findPage(lastToken, size).getContent().size());
+            }
+        });
+    }
+
+    private int offsetPage(int offset, int size) {
+        return em.createQuery(MemberReadService.VIEW_SELECT + " order by m.name, m.id", MemberView.class)
+                .setFirstResult(offset)
+                .setMaxResults(size)
+                .getResultList()
+                .size();
+    }
+
+    private void time(String label, Supplier<Integer> query) {
+        int repeat = 20;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            query.get();
+        }
+        System.out.printf("=== %-20s : %,.2f ms/page ===%n", label, (System.nanoTime() - start) / 1e6 / repeat);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] 일반 조회 vs 읽기 전용 조회 (지연시간, 할당량)")
+    void allocation() {
+        int rows = Integer.getInteger("benchmark.rows", 50_000);
+        tx.executeWithoutResult(status -> bulkService.persistAll(
+                IntStream.range(0, rows).mapToObj(i -> new Member(UUID.randomUUID(), "read-" + i))));
+        try {
+            for (int round = 0; round < 3; round++) {
+                System.out.println("=== round " + (round + 1) + " ===");
+                measure("JPQL 엔티티 조회 + flush", () -> tx.execute(status -> {
+                    List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+                    em.flush();
+                    return members.size();
+                }));
+                // 저장할 때 2차 캐시에 들어갔으므로, 캐시를 거치지 않고 DB 에서 읽도록 한다.
+                measure("em.find x 1000", () -> tx.execute(status -> {
+                    List<UUID> ids = em.createQuery("select m.id from Member m", UUID.class).setMaxResults(1000).getResultList();
+                    Map<String, Object> bypassCache = Collections.singletonMap(
+                            "javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+                    ids.forEach(id -> em.find(Member.class, id, bypassCache));
+                    return ids.size();
+                }));
+                measure("DTO 프로젝션", () -> readService.findAllViews().size());
+                measure("stateless session", () -> readService.findAllDetached().size());
+            }
+        } finally {
+            tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.name like 'read-%'").executeUpdate());
+        }
+    }
+
+    private void measure(String label, Supplier<Integer> query) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        int rows = query.get();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+
+        System.out.printf("=== %-22s : %,d rows, %,.1f ms, %,d KB allocated (%,d B/row) ===%n",
+                label, rows, elapsed / 1e6, allocated / 1024, allocated / Math.max(rows, 1));
+    }
+}
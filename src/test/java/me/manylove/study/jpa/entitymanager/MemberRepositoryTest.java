@@ -0,0 +1,58 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberRepositoryTest {
+    private static final UUID FLOWER_ID = UUID.fromString("b0131310-42d8-4fc5-a123-273e01467268");
+    private static final UUID DONG_ID = UUID.fromString("2e61abf6-3312-45d2-9e48-1e105a7fba0d");
+    private static final UUID YOUNG1000_ID = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    @DisplayName("여러 id 조회 : 입력 순서 유지, 1차 캐시의 객체와 동일성 보장")
+    void findAllByIds() {
+        Member memberOh = em.find(Member.class, DONG_ID);
+        UUID unknownId = UUID.randomUUID();
+
+        List<Member> members = memberRepository.findAllByIds(Arrays.asList(YOUNG1000_ID, unknownId, DONG_ID, FLOWER_ID));
+
+        assertThat(members).extracting(Member::getId).containsExactly(YOUNG1000_ID, DONG_ID, FLOWER_ID);
+        assertThat(members.get(1) == memberOh).isTrue();
+        assertThat(members.get(0) == em.find(Member.class, YOUNG1000_ID)).isTrue();
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. 이미 조회한 오동규는 다시 조회하지 않고, 나머지 id 만 IN 쿼리 한번으로 가져온다.
+         * 2. 반환된 객체는 영속성 컨텍스트가 관리하는 객체와 같은 객체다. (동일성 보장)
+         * 3. 없는 id 는 결과에서 빠진다.
+         */
+    }
+
+    @Test
+    @DisplayName("삭제한 Member 는 결과에서 빠진다")
+    void removed() {
+        Member memberKang = em.find(Member.class, FLOWER_ID);
+        em.remove(memberKang);
+
+        assertThat(memberRepository.findAllByIds(Arrays.asList(FLOWER_ID, DONG_ID)))
+                .extracting(Member::getId)
+                .containsExactly(DONG_ID);
+    }
+}
@@ -0,0 +1,156 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 이름 부분/유사 검색 (pg_trgm GIN 인덱스, sql/ddl-postgresql.sql 필요)
+ */
+@SpringBootTest
+@Tag("postgresql")
+class MemberSearchServiceTest {
+    private static final UUID YOUNG1000_ID = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+    @Autowired
+    private MemberSearchService searchService;
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private MemberCopyLoader copyLoader;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Test
+    @DisplayName("검색어가 들어 있거나 비슷한 이름을 유사도순으로 찾는다")
+    void search() {
+        List<MemberSearchHit> hits = searchService.search("이영천", null, 10).getContent();
+        assertThat(hits).contains(new MemberSearchHit(YOUNG1000_ID, "이영천", 1.0f));
+        assertThat(hits.get(0).getScore()).isEqualTo(1.0f);
+
+        // 오타 : 이영찬 -> 이영천
+        assertThat(searchService.search("이영찬", null, 10).getContent())
+                .extracting(MemberSearchHit::getId).contains(YOUNG1000_ID);
+        // 부분 일치 : 2글자
+        assertThat(searchService.search("영천", null, 10).getContent())
+                .extracting(MemberSearchHit::getId).contains(YOUNG1000_ID);
+        // LIKE 패턴 문자는 그대로 검색한다.
+        assertThat(searchService.search("%", null, 10).getContent()).isEmpty();
+
+        assertThatThrownBy(() -> searchService.search(" ", null, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("영천", null, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> searchService.search("영천", "not-a-token", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("다음 페이지를 끝까지 넘기면 검색 결과를 한번씩, 유사도순으로 읽는다")
+    void pages() {
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            bulkService.persistAll(IntStream.range(0, 37)
+                    .mapToObj(i -> new Member(UUID.randomUUID(), i % 3 == 0 ? "검색테스트" : "검색테스트" + i)));
+            int total = searchService.search("검색테스트", null, MemberSearchService.MAX_LIMIT).getContent().size();
+
+            List<MemberSearchHit> read = new ArrayList<>();
+            MemberSearchPage page = searchService.search("검색테스트", null, 5);
+            read.addAll(page.getContent());
+            while (page.getNext() != null) {
+                page = searchService.search("검색테스트", page.getNext(), 5);
+                read.addAll(page.getContent());
+            }
+
+            assertThat(total).isEqualTo(37);
+            assertThat(read).hasSize(37);
+            assertThat(new HashSet<>(read)).hasSize(37);
+            for (int i = 1; i < read.size(); i++) {
+                assertThat(read.get(i).getScore()).isLessThanOrEqualTo(read.get(i - 1).getScore());
+            }
+        });
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. 이름이 검색어와 같은 Member(유사도 1.0)가 먼저, 유사도가 같으면 id 순으로 나온다.
+         * 2. 다음 페이지 쿼리는 OFFSET 없이 similarity(name, ?) < ? or (similarity(name, ?) = ? and id > ?) 로 실행된다.
+         */
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] 인덱스 없는 LIKE vs trigram 인덱스 : 100,000 행과 10,000,000 행의 검색 시간")
+    void searchLatency() {
+        int[] sizes = Stream.of(System.getProperty("benchmark.rows", "100000,10000000").split(","))
+                .mapToInt(size -> Integer.parseInt(size.trim()))
+                .sorted()
+                .toArray();
+        Random random = new Random(42);
+        int loaded = 0;
+        try {
+            for (int size : sizes) {
+                int rows = size - loaded;
+                tx.executeWithoutResult(status -> copyLoader.load(IntStream.range(0, rows)
+                        .mapToObj(i -> new Member(UUID.randomUUID(), "검색" + koreanName(random)))));
+                loaded = size;
+                jdbcTemplate.execute("analyze member");
+
+                for (int round = 0; round < 3; round++) {
+                    System.out.println("=== rows " + size + ", round " + (round + 1) + " ===");
+                    time("LIKE, 인덱스 사용 안함", () -> tx.execute(status -> {
+                        jdbcTemplate.execute("set local enable_bitmapscan = off");
+                        jdbcTemplate.execute("set local enable_indexscan = off");
+                        return likeCount("이영천");
+                    }));
+                    time("LIKE, trigram 인덱스", () -> likeCount("이영천"));
+                    time("검색 API (부분)", () -> searchService.search("이영천", null, 20).getContent().size());
+                    time("검색 API (오타)", () -> searchService.search("이영찬", null, 20).getContent().size());
+                }
+            }
+        } finally {
+            tx.executeWithoutResult(status -> jdbcTemplate.update("delete from member where name like '검색%'"));
+        }
+    }
+
+    /**
+     * 일치하는 행을 모두 센다. ( limit 을 두면 인덱스가 없어도 앞쪽에서 일찍 끝날 수 있다. )
+     */
+    private int likeCount(String query) {
+        return jdbcTemplate.queryForObject("select count(*) from member where name like ?", Integer.class, "%" + query + "%");
+    }
+
+    /**
+     * 성 10개, 이름 글자 16개로 만든 3글자 이름. 같은 이름이 반복되므로 검색 결과가 여러 건이다.
+     */
+    private static String koreanName(Random random) {
+        String surnames = "김이박최정강조윤장임";
+        String syllables = "민서준지현우예은하도영수진성호천";
+        return "" + surnames.charAt(random.nextInt(surnames.length()))
+                + syllables.charAt(random.nextInt(syllables.length()))
+                + syllables.charAt(random.nextInt(syllables.length()));
+    }
+
+    private void time(String label, Supplier<Integer> query) {
+        int repeat = 20;
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            query.get();
+        }
+        System.out.printf("=== %-20s : %,.2f ms/query ===%n", label, (System.nanoTime() - start) / 1e6 / repeat);
+    }
+}
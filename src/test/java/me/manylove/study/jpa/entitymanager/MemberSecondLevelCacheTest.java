@@ -0,0 +1,73 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 2차 캐시 : 트랜잭션이 달라도 공유되는 캐시
+ *
+ * Chapter 1 의 저장/조회/수정/삭제 흐름을 트랜잭션 단위로 나누어 캐시 상태를 확인한다.
+ */
+@SpringBootTest
+class MemberSecondLevelCacheTest {
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private TransactionTemplate tx;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("저장/조회/수정/삭제 후의 2차 캐시 상태")
+    void crud() {
+        UUID id = UUID.randomUUID();
+
+        System.out.println("=== 저장 커밋 전 ===");
+        tx.executeWithoutResult(status -> em.persist(new Member(id, "권다애")));
+        System.out.println("=== 저장 커밋 후 ===");
+        assertThat(emf.getCache().contains(Member.class, id)).isTrue();
+
+        double hitsBefore = hits();
+        System.out.println("=== 다른 트랜잭션에서 조회 전 ===");
+        Member found = tx.execute(status -> em.find(Member.class, id));
+        System.out.println("=== 다른 트랜잭션에서 조회 후 ===");
+        assertThat(found.getName()).isEqualTo("권다애");
+        assertThat(hits()).isGreaterThan(hitsBefore);
+
+        tx.executeWithoutResult(status -> em.find(Member.class, id).setName("권영애"));
+        String name = tx.execute(status -> em.find(Member.class, id).getName());
+        assertThat(name).isEqualTo("권영애");
+
+        tx.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+        assertThat(emf.getCache().contains(Member.class, id)).isFalse();
+        Member removed = tx.execute(status -> em.find(Member.class, id));
+        assertThat(removed).isNull();
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. 저장이 커밋되면 2차 캐시에도 들어간다. 이후 다른 트랜잭션의 조회는 SELECT 쿼리 없이 캐시에서 가져온다.
+         * 2. 수정이 커밋되면 캐시의 내용도 함께 바뀐다.
+         * 3. 삭제가 커밋되면 캐시에서도 제거된다.
+         */
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", MemberCacheConfig.REGION)
+                .tag("result", "hit")
+                .functionCounter()
+                .count();
+    }
+}
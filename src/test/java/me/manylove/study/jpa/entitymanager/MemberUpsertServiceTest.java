@@ -0,0 +1,171 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * em.merge 대신 INSERT ... ON CONFLICT 로 저장/수정
+ */
+@SpringBootTest
+@Tag("postgresql")
+class MemberUpsertServiceTest {
+    private static final UUID YOUNG1000_ID = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+    @Autowired
+    private MemberUpsertService upsertService;
+    @Autowired
+    private MemberBulkService bulkService;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private EntityManagerFactory emf;
+    @Autowired
+    private TransactionTemplate tx;
+
+    @Test
+    @Transactional
+    @DisplayName("없는 Member 는 저장하고 있는 Member 는 수정한다")
+    void saveOrUpdateAll() {
+        Member created = new Member(null, "권다애");
+        System.out.println("=== upsert 전 ===");
+        int saved = upsertService.saveOrUpdateAll(Arrays.asList(new Member(YOUNG1000_ID, "이영수"), created));
+        System.out.println("=== upsert 후 ===");
+
+        assertThat(saved).isEqualTo(2);
+        assertThat(created.getId()).isNotNull();
+        assertThat(em.contains(created)).isFalse();
+        assertThat(em.find(Member.class, YOUNG1000_ID).getName()).isEqualTo("이영수");
+        assertThat(em.find(Member.class, created.getId()).getName()).isEqualTo("권다애");
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. merge 와 달리 SELECT 없이 INSERT ... ON CONFLICT 한번으로 저장과 수정이 끝난다.
+         * 2. 전달한 Member 는 영속성 컨텍스트에 들어가지 않는다. 2차 캐시에서도 바로 제거하므로 이후 find 는 DB 에서 읽는다.
+         */
+    }
+
+    @Test
+    @Transactional
+    @DisplayName("관리 중인 엔티티는 upsert 한 내용으로 다시 읽는다")
+    void refreshManaged() {
+        Member managed = em.find(Member.class, YOUNG1000_ID);
+        managed.setName("이영일");
+
+        upsertService.saveOrUpdateAll(Arrays.asList(new Member(YOUNG1000_ID, "이영이")));
+
+        assertThat(managed.getName()).isEqualTo("이영이");
+        em.flush();
+        em.clear();
+        assertThat(em.find(Member.class, YOUNG1000_ID).getName()).isEqualTo("이영이");
+    }
+
+    @Test
+    @DisplayName("2차 캐시에 있던 Member 도 upsert 한 트랜잭션 안에서 바뀐 값으로 읽는다")
+    void readUpsertedInSameTransaction() {
+        UUID id = UUID.randomUUID();
+        tx.executeWithoutResult(status -> em.persist(new Member(id, "권다애")));
+        tx.executeWithoutResult(status -> em.find(Member.class, id));
+        assertThat(emf.getCache().contains(Member.class, id)).isTrue();
+
+        try {
+            String name = tx.execute(status -> {
+                upsertService.saveOrUpdateAll(Arrays.asList(new Member(id, "권영애")));
+                return em.find(Member.class, id).getName();
+            });
+
+            assertThat(name).isEqualTo("권영애");
+        } finally {
+            tx.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+        }
+    }
+
+    @Test
+    @DisplayName("롤백되면 트랜잭션 안에서 캐시에 올라간 값도 제거한다")
+    void evictOnRollback() {
+        UUID id = UUID.randomUUID();
+        tx.executeWithoutResult(status -> em.persist(new Member(id, "권다애")));
+
+        try {
+            tx.executeWithoutResult(status -> {
+                upsertService.saveOrUpdateAll(Arrays.asList(new Member(id, "권영애")));
+                em.find(Member.class, id);
+                status.setRollbackOnly();
+            });
+
+            assertThat(emf.getCache().contains(Member.class, id)).isFalse();
+            String name = tx.execute(status -> em.find(Member.class, id).getName());
+            assertThat(name).isEqualTo("권다애");
+        } finally {
+            tx.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+        }
+    }
+
+    @Test
+    @DisplayName("커밋 후 2차 캐시에서 제거한다")
+    void evictSecondLevelCache() {
+        UUID id = UUID.randomUUID();
+        tx.executeWithoutResult(status -> em.persist(new Member(id, "권다애")));
+        assertThat(emf.getCache().contains(Member.class, id)).isTrue();
+
+        try {
+            tx.executeWithoutResult(status -> upsertService.saveOrUpdateAll(Arrays.asList(new Member(id, "권영애"))));
+
+            assertThat(emf.getCache().contains(Member.class, id)).isFalse();
+            String name = tx.execute(status -> em.find(Member.class, id).getName());
+            assertThat(name).isEqualTo("권영애");
+        } finally {
+            tx.executeWithoutResult(status -> em.remove(em.find(Member.class, id)));
+        }
+    }
+
+    @Test
+    @Transactional
+    @Tag("benchmark")
+    @DisplayName("[benchmark] em.merge 반복 vs upsert (신규/기존 절반씩)")
+    void throughput() {
+        int rows = Integer.getInteger("benchmark.rows", 10_000);
+        List<UUID> existing = IntStream.range(0, rows / 2).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+        bulkService.persistAll(existing.stream().map(id -> new Member(id, "before")));
+
+        List<Member> merging = mixed(existing, rows, "merge-");
+        long start = System.nanoTime();
+        merging.forEach(em::merge);
+        em.flush();
+        em.clear();
+        long mergeNanos = System.nanoTime() - start;
+
+        List<Member> upserting = mixed(existing, rows, "upsert-");
+        start = System.nanoTime();
+        upsertService.saveOrUpdateAll(upserting);
+        long upsertNanos = System.nanoTime() - start;
+
+        System.out.println("=== rows : " + rows + " ===");
+        System.out.printf("=== em.merge : %,d ms (%,.0f rows/s) ===%n", mergeNanos / 1_000_000, rows * 1e9 / mergeNanos);
+        System.out.printf("=== upsert   : %,d ms (%,.0f rows/s) ===%n", upsertNanos / 1_000_000, rows * 1e9 / upsertNanos);
+    }
+
+    private List<Member> mixed(List<UUID> existing, int rows, String prefix) {
+        List<Member> members = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            UUID id = i % 2 == 0 && i / 2 < existing.size() ? existing.get(i / 2) : UUID.randomUUID();
+            members.add(new Member(id, prefix + i));
+        }
+        return members;
+    }
+}
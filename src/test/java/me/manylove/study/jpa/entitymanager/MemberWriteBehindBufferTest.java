@@ -0,0 +1,287 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * write-behind 버퍼 : DB 없이 쓰기를 기록하는 writer 로 확인한다.
+ */
+class MemberWriteBehindBufferTest {
+
+    @Test
+    @DisplayName("같은 Member 의 변경은 마지막 값 하나로 합쳐서 쓴다")
+    void coalesce() throws InterruptedException {
+        RecordingWriter writer = new RecordingWriter();
+        UUID id = UUID.randomUUID();
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 4, 100, 100, Duration.ofHours(1), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            buffer.updateName(id, "권다애-" + i);
+        }
+        assertThat(buffer.pendingName(id)).contains("권다애-9");
+        buffer.close();
+
+        assertThat(writer.updates).isEqualTo(1);
+        assertThat(writer.names).containsEntry(id, "권다애-9");
+        assertThat(buffer.getCoalesced()).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("flushSize 만큼 모이면 flushInterval 전에 쓴다")
+    void flushOnSize() throws InterruptedException {
+        RecordingWriter writer = new RecordingWriter();
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 4, 1000, 10, Duration.ofHours(1), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            buffer.updateName(UUID.randomUUID(), "size-" + i);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.updates < 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(writer.updates).isEqualTo(10);
+        buffer.close();
+    }
+
+    @Test
+    @DisplayName("가득 차면 새 id 는 거절하고, 이미 있는 id 의 변경은 받는다")
+    void backpressure() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter writer = new RecordingWriter() {
+            @Override
+            public void write(Map<UUID, String> names) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(names);
+            }
+        };
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 1, 2, 1000, Duration.ofHours(1), Duration.ofMillis(500));
+        UUID first = UUID.randomUUID();
+        buffer.updateName(first, "a");
+        buffer.updateName(UUID.randomUUID(), "b");
+        // writer 가 처음 두 건을 가져간 채 멈춰 있으므로, 그 다음 두 건으로 버퍼가 가득 찬다.
+        buffer.updateName(UUID.randomUUID(), "c");
+        buffer.updateName(UUID.randomUUID(), "d");
+
+        assertThatThrownBy(() -> buffer.updateName(UUID.randomUUID(), "e")).isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        buffer.close();
+        assertThat(writer.updates).isEqualTo(4);
+        assertThat(writer.names).containsEntry(first, "a");
+    }
+
+    @Test
+    @DisplayName("쓰기가 실패하면 더 새로운 값을 덮지 않고 다시 쓴다")
+    void retry() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        RecordingWriter writer = new RecordingWriter() {
+            private boolean failed;
+
+            @Override
+            public void write(Map<UUID, String> names) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("connection refused");
+                }
+                super.write(names);
+            }
+        };
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 1, 10, 100, Duration.ofHours(1), Duration.ZERO);
+        buffer.updateName(id, "old");
+        buffer.flush();
+        assertThat(buffer.pendingName(id)).contains("old");
+
+        buffer.updateName(id, "new");
+        buffer.close();
+
+        assertThat(writer.names).containsEntry(id, "new");
+        assertThat(buffer.getPending()).isZero();
+    }
+
+    @Test
+    @DisplayName("쓰는 중인 변경도 커밋될 때까지 pendingName 에 보인다")
+    void pendingWhileWriting() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingWriter writer = new RecordingWriter() {
+            @Override
+            public void write(Map<UUID, String> names) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(names);
+            }
+        };
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 1, 10, 1, Duration.ofHours(1), Duration.ZERO);
+        UUID id = UUID.randomUUID();
+        buffer.updateName(id, "writing");
+
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(buffer.getPending()).isZero();
+        assertThat(buffer.pendingName(id)).contains("writing");
+
+        release.countDown();
+        buffer.close();
+        assertThat(buffer.pendingName(id)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("쓰기가 실패했을 때 버퍼가 새 변경으로 가득 찼으면 되돌리지 않고 버린다")
+    void dropWhenFull() throws InterruptedException {
+        AtomicReference<MemberWriteBehindBuffer> holder = new AtomicReference<>();
+        RecordingWriter writer = new RecordingWriter() {
+            private boolean failed;
+
+            @Override
+            public void write(Map<UUID, String> names) {
+                if (!failed) {
+                    failed = true;
+                    // 실패할 batch 를 쓰는 동안 새 변경으로 버퍼가 가득 찬다.
+                    holder.get().updateName(UUID.randomUUID(), "c");
+                    holder.get().updateName(UUID.randomUUID(), "d");
+                    throw new IllegalStateException("connection refused");
+                }
+                super.write(names);
+            }
+        };
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 1, 2, 100, Duration.ofHours(1), Duration.ZERO);
+        holder.set(buffer);
+        buffer.updateName(UUID.randomUUID(), "a");
+        buffer.updateName(UUID.randomUUID(), "b");
+        buffer.flush();
+
+        assertThat(buffer.getDropped()).isEqualTo(2);
+        assertThat(buffer.getPending()).isEqualTo(2);
+        buffer.close();
+        assertThat(writer.names).containsValues("c", "d").doesNotContainValue("a");
+    }
+
+    @Test
+    @DisplayName("닫힌 버퍼는 변경을 받지 않는다")
+    void closed() throws InterruptedException {
+        MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(new RecordingWriter(), 1, 10, 10, Duration.ofSeconds(1), Duration.ZERO);
+        buffer.close();
+
+        assertThatThrownBy(() -> buffer.updateName(UUID.randomUUID(), "late")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] Zipf 분포의 이름 변경에서 줄어드는 UPDATE 수")
+    void zipf() throws InterruptedException {
+        int members = Integer.getInteger("benchmark.members", 100_000);
+        int updates = Integer.getInteger("benchmark.rows", 1_000_000);
+        int threads = 8;
+        List<UUID> ids = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        for (double skew : new double[]{0.5, 0.99, 1.2}) {
+            for (Duration interval : new Duration[]{Duration.ofMillis(100), Duration.ofSeconds(1)}) {
+                RecordingWriter writer = new RecordingWriter();
+                MemberWriteBehindBuffer buffer = new MemberWriteBehindBuffer(writer, 16, members, 1_000_000, interval, Duration.ofSeconds(1));
+                Zipf zipf = new Zipf(members, skew);
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                long start = System.nanoTime();
+                for (int t = 0; t < threads; t++) {
+                    long seed = t;
+                    executor.execute(() -> {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < updates / threads; i++) {
+                            buffer.updateName(ids.get(zipf.next(random)), "zipf-" + i);
+                            // 요청이 몰려 들어오는 속도를 흉내낸다. (스레드마다 1ms 에 최대 1000 건, 8 스레드 합계 초당 최대 약 800만 건)
+                            if (i % 1000 == 0) {
+                                sleepQuietly(1);
+                            }
+                        }
+                    });
+                }
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.MINUTES);
+                buffer.close();
+                long elapsed = System.nanoTime() - start;
+
+                System.out.printf("=== skew %.2f, flush %,d ms : %,d updates -> %,d UPDATEs (%.1f%% saved), %,d batches, %,d ms ===%n",
+                        skew, interval.toMillis(), buffer.getSubmitted(), writer.updates,
+                        100.0 * (buffer.getSubmitted() - writer.updates) / buffer.getSubmitted(),
+                        buffer.getBatches(), elapsed / 1_000_000);
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 쓰기 대신 실행했을 UPDATE 수를 센다.
+     */
+    private static class RecordingWriter implements MemberBatchWriter {
+        final Map<UUID, String> names = new ConcurrentHashMap<>();
+        volatile long updates;
+        private final AtomicLong counter = new AtomicLong();
+
+        @Override
+        public void write(Map<UUID, String> names) {
+            this.names.putAll(names);
+            updates = counter.addAndGet(names.size());
+        }
+    }
+
+    /**
+     * 순위 k 가 뽑힐 확률이 1 / k^skew 에 비례하는 분포 (누적 분포를 이진 탐색)
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 0; k < n; k++) {
+                sum += 1 / Math.pow(k + 1, skew);
+                cumulative[k] = sum;
+            }
+            for (int k = 0; k < n; k++) {
+                cumulative[k] /= sum;
+            }
+        }
+
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+        }
+    }
+}
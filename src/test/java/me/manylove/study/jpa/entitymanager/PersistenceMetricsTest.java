@@ -0,0 +1,51 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 영속성 컨텍스트 지표 (actuator /metrics)
+ */
+@SpringBootTest
+class PersistenceMetricsTest {
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("1차 캐시 hit/miss, flush, 세션당 쿼리 수를 기록한다")
+    void record() {
+        UUID leeId = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+        double hits = firstLevelCache("hit");
+        double misses = firstLevelCache("miss");
+        long flushes = meterRegistry.get("hibernate.session.flush").timer().count();
+        long sessions = meterRegistry.get("hibernate.session.statements").summary().count();
+
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, leeId);
+            em.find(Member.class, leeId);
+        });
+
+        assertThat(firstLevelCache("hit")).isEqualTo(hits + 1);
+        assertThat(firstLevelCache("miss")).isEqualTo(misses + 1);
+        assertThat(meterRegistry.get("hibernate.session.flush").timer().count()).isGreaterThan(flushes);
+        assertThat(meterRegistry.get("hibernate.session.statements").summary().count()).isGreaterThan(sessions);
+        assertThat(meterRegistry.get("hibernate.entities.loads").functionCounter()).isNotNull();
+    }
+
+    private double firstLevelCache(String result) {
+        return meterRegistry.get("hibernate.first.level.cache.requests").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,54 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 요청당 쿼리 수 필터 : 위반 시 실패시키는 모드
+ *
+ * [ 살펴볼 내용 ]
+ * 컨트롤러가 본문을 쓰고 flush 해도 본문은 버퍼에 있으므로, 필터가 실패시킬 때 응답은 아직 나가지 않은 상태다.
+ */
+class QueryBudgetFilterTest {
+
+    @Test
+    @DisplayName("제한을 넘으면 본문을 내보내지 않고 예외를 던진다")
+    void failBeforeCommit() {
+        QueryBudgetProperties properties = new QueryBudgetProperties();
+        properties.setMaxQueries(2);
+        properties.setFailOnViolation(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (request, res) -> {
+            for (int i = 0; i < 3; i++) {
+                QueryBudget.record("select " + i);
+            }
+            res.getWriter().write("[]");
+            res.flushBuffer();
+        };
+
+        assertThatThrownBy(() -> new QueryBudgetFilter(properties).doFilter(new MockHttpServletRequest(), response, chain))
+                .isInstanceOf(QueryBudgetExceededException.class);
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("제한 안이면 본문을 그대로 내보낸다")
+    void withinBudget() throws Exception {
+        QueryBudgetProperties properties = new QueryBudgetProperties();
+        properties.setFailOnViolation(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new QueryBudgetFilter(properties).doFilter(new MockHttpServletRequest(), response,
+                (request, res) -> res.getWriter().write("[]"));
+
+        assertThat(response.getContentAsString()).isEqualTo("[]");
+    }
+}
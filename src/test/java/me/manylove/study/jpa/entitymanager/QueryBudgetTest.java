@@ -0,0 +1,66 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 요청당 쿼리 수 측정과 N+1 감지
+ */
+@SpringBootTest
+@Transactional
+class QueryBudgetTest {
+    @Autowired
+    private EntityManager em;
+
+    @Test
+    @DisplayName("같은 쿼리를 반복해서 실행하면 N+1 로 감지한다")
+    void repeated() {
+        try (QueryBudget budget = QueryBudget.start()) {
+            for (String name : Arrays.asList("깅원화", "오동규", "이영천", "강원천")) {
+                em.createQuery("select m from Member m where m.name = :name", Member.class)
+                        .setParameter("name", name)
+                        .getResultList();
+            }
+
+            assertThat(budget.total()).isEqualTo(4);
+            assertThat(budget.maxRepeats()).isEqualTo(4);
+            assertThat(budget.repeated(4)).hasSize(1);
+            assertThatThrownBy(() -> budget.assertWithin(10, 3))
+                    .isInstanceOf(QueryBudgetExceededException.class)
+                    .hasMessageContaining("N+1");
+            budget.assertWithin(10, 4);
+        }
+    }
+
+    @Test
+    @DisplayName("전체 쿼리 수 제한을 넘으면 실패한다")
+    void budget() {
+        try (QueryBudget budget = QueryBudget.start()) {
+            em.createQuery("select count(m) from Member m").getSingleResult();
+            em.createQuery("select m from Member m", Member.class).getResultList();
+
+            assertThatThrownBy(() -> budget.assertWithin(1, 5))
+                    .isInstanceOf(QueryBudgetExceededException.class)
+                    .hasMessageContaining("query budget exceeded: 2 > 1");
+        }
+    }
+
+    @Test
+    @DisplayName("QueryBudget 밖에서 실행한 쿼리는 세지 않는다")
+    void outside() {
+        em.createQuery("select count(m) from Member m").getSingleResult();
+
+        try (QueryBudget budget = QueryBudget.start()) {
+            assertThat(budget.total()).isZero();
+        }
+    }
+}
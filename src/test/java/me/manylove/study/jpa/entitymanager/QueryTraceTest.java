@@ -0,0 +1,78 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 표본 추출 + 비동기 쿼리 추적
+ */
+@SpringBootTest
+class QueryTraceTest {
+    private static final UUID YOUNG1000_ID = UUID.fromString("91905d95-5161-4246-805e-d50960bef07b");
+
+    @Autowired
+    private QueryTracer tracer;
+    @Autowired
+    private QueryTraceEndpoint endpoint;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+
+    @AfterEach
+    void disable() {
+        endpoint.configure(false, 0.01);
+    }
+
+    @Test
+    @DisplayName("실행 중에 켜고 끌 수 있고, 켜져 있을 때만 기록한다")
+    void toggle() {
+        assertThat(dataSource).isInstanceOf(QueryTracingDataSource.class);
+
+        long before = tracer.getRecorded();
+        findYoung1000();
+        assertThat(tracer.getRecorded()).isEqualTo(before);
+
+        endpoint.configure(true, 1.0);
+        System.out.println("=== 추적 중 조회 전 ===");
+        findYoung1000();
+        System.out.println("=== 추적 중 조회 후 ===");
+        assertThat(tracer.getRecorded()).isGreaterThan(before);
+        assertThat(endpoint.status()).containsEntry("enabled", true).containsEntry("sampleRate", 1.0);
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. 추적 기록은 요청 스레드가 아닌 member-query-trace 스레드가 member.query-trace 로그로 남긴다.
+         *    sql="select ... where member0_.id=?" binds=1 batch=1 rows=1 duration_us=...
+         */
+    }
+
+    @Test
+    @DisplayName("리터럴과 IN 목록을 정리해서 같은 모양의 SQL 로 만든다")
+    void shape() {
+        assertThat(QuerySqlShape.of("select *\n  from member where name = 'o''neil' and age > 20"))
+                .isEqualTo("select * from member where name = ? and age > ?");
+        assertThat(QuerySqlShape.of("select * from member0_ where id in (?, ?, ?)"))
+                .isEqualTo(QuerySqlShape.of("select * from member0_ where id in (?,?)"));
+    }
+
+    private void findYoung1000() {
+        tx.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.id = :id", Member.class)
+                    .setParameter("id", YOUNG1000_ID)
+                    .getResultList();
+        });
+    }
+}
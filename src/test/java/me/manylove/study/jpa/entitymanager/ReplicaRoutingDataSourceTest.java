@@ -0,0 +1,131 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기/쓰기 분리 : 이름이 다른 H2 메모리 DB 3개를 primary, replica 로 두고, 어느 DB 에서 읽었는지 확인한다.
+ *
+ * [ 살펴볼 내용 ]
+ * 트랜잭션 매니저는 readOnly 표시를 하기 전에 커넥션을 가져오므로,
+ * LazyConnectionDataSourceProxy 없이 ReplicaRoutingDataSource 를 바로 쓰면 모든 트랜잭션이 primary 로 간다.
+ */
+class ReplicaRoutingDataSourceTest {
+    /** 드라이버가 없는 URL : 커넥션을 가져오지 못하고 바로 실패한다. */
+    private static final DataSource UNREACHABLE = new DriverManagerDataSource("jdbc:unreachable://replica");
+
+    private final DataSource primary = node("primary");
+    private final DataSource replicaA = node("replica-a");
+    private final DataSource replicaB = node("replica-b");
+
+    @Test
+    @DisplayName("readOnly 트랜잭션은 replica 를 돌아가며 쓰고, 나머지는 primary 를 쓴다")
+    void routing() throws Exception {
+        try (ReplicaRoutingDataSource routing = routing(Duration.ZERO, replicaA, replicaB)) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+            List<String> reads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                reads.add(readNode(dataSource, true));
+            }
+
+            assertThat(reads).containsExactlyInAnyOrder("replica-a", "replica-a", "replica-b", "replica-b");
+            assertThat(readNode(dataSource, false)).isEqualTo("primary");
+        }
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션을 커밋한 스레드는 read-your-writes 동안 primary 에서 읽는다")
+    void readYourWrites() throws Exception {
+        try (ReplicaRoutingDataSource routing = routing(Duration.ofMillis(300), replicaA)) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+            readNode(dataSource, false);
+
+            assertThat(readNode(dataSource, true)).isEqualTo("primary");
+            // 다른 스레드는 영향을 받지 않는다.
+            assertThat(CompletableFuture.supplyAsync(() -> readNode(dataSource, true)).get()).isEqualTo("replica-a");
+
+            Thread.sleep(400);
+            assertThat(readNode(dataSource, true)).isEqualTo("replica-a");
+        }
+    }
+
+    @Test
+    @DisplayName("커넥션을 가져오지 못한 replica 는 빼고 읽고, 모두 안되면 primary 에서 읽는다")
+    void failover() throws Exception {
+        try (ReplicaRoutingDataSource routing = routing(Duration.ZERO, UNREACHABLE, replicaB)) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+            assertThat(readNode(dataSource, true)).isEqualTo("replica-b");
+            assertThat(readNode(dataSource, true)).isEqualTo("replica-b");
+            assertThat(routing.healthyReplicas()).containsExactly("replica-b");
+
+            routing.checkHealth();
+            assertThat(routing.healthyReplicas()).containsExactly("replica-b");
+        }
+
+        try (ReplicaRoutingDataSource routing = routing(Duration.ZERO, UNREACHABLE)) {
+            assertThat(readNode(new LazyConnectionDataSourceProxy(routing), true)).isEqualTo("primary");
+            assertThat(routing.healthyReplicas()).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("풀이 바닥나서 시간이 지난 replica 는 이번만 건너뛰고 비정상으로 표시하지 않는다")
+    void poolTimeout() throws Exception {
+        DataSource exhausted = new DelegatingDataSource(replicaA) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLTransientConnectionException("member-pool-replica-0 - Connection is not available, request timed out after 500ms.");
+            }
+        };
+        Map<String, DataSource> named = new LinkedHashMap<>();
+        named.put("exhausted", exhausted);
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, named, Duration.ZERO)) {
+            assertThat(readNode(new LazyConnectionDataSourceProxy(routing), true)).isEqualTo("primary");
+            assertThat(routing.healthyReplicas()).containsExactly("exhausted");
+        }
+    }
+
+    private ReplicaRoutingDataSource routing(Duration readYourWrites, DataSource... replicas) {
+        Map<String, DataSource> named = new LinkedHashMap<>();
+        for (DataSource replica : replicas) {
+            named.put(replica == UNREACHABLE ? "unreachable" : readNode(replica, false), replica);
+        }
+        return new ReplicaRoutingDataSource(primary, named, readYourWrites);
+    }
+
+    private static String readNode(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+    }
+
+    private static DataSource node(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(32) primary key)");
+        jdbcTemplate.update("merge into node key (name) values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,103 @@
+package me.manylove.study.jpa.entitymanager;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * replica 수(0, 1, 2)에 따른 읽기 처리량과 p99.
+ *
+ * docker/replica/docker-compose.yml 의 primary 1대, replica 2대가 필요하다.
+ *   docker compose -f docker/replica/docker-compose.yml up -d
+ *   ./gradlew benchmark --tests '*ReplicaRoutingLoadTest'
+ * 요청 하나는 readOnly 트랜잭션에서 이름 조건으로 Member 를 세는 쿼리(테이블 전체 scan, DB CPU 사용)를 실행한다.
+ * 인스턴스들이 같은 호스트의 CPU 를 나눠 쓰므로, 호스트 CPU 가 포화되면 replica 를 늘려도 처리량이 늘지 않는다.
+ */
+@SpringBootTest
+@ActiveProfiles("replica")
+@Tag("benchmark")
+@Tag("postgresql")
+class ReplicaRoutingLoadTest {
+    private static final String PREFIX = "replica-load-";
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    @Autowired
+    private ReplicaProperties replicaProperties;
+    @Autowired
+    private Environment environment;
+
+    @Test
+    @DisplayName("[benchmark] replica 수별 읽기 처리량, p99")
+    void replicas() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 200_000);
+        int clients = Integer.getInteger("benchmark.clients", 64);
+        Duration duration = Duration.ofSeconds(Long.getLong("benchmark.seconds", 10L));
+        List<String> urls = replicaProperties.getUrls();
+
+        try (HikariDataSource seed = ReplicaRoutingConfig.primaryPool(dataSourceProperties, environment)) {
+            JdbcTemplate primary = new JdbcTemplate(seed);
+            primary.update("delete from member where name like ?", PREFIX + "%");
+            primary.update("insert into member (id, name) select gen_random_uuid(), ? || g from generate_series(1, ?) g",
+                    PREFIX, rows);
+            primary.execute("analyze member");
+            try {
+                for (int replicaCount = 0; replicaCount <= urls.size(); replicaCount++) {
+                    LoadGenerator.Result result = run(urls.subList(0, replicaCount), rows, clients, duration);
+                    System.out.printf("=== replicas %d, clients %d : %s ===%n", replicaCount, clients, result);
+                }
+            } finally {
+                primary.update("delete from member where name like ?", PREFIX + "%");
+            }
+        }
+    }
+
+    private LoadGenerator.Result run(List<String> urls, int rows, int clients, Duration duration) throws Exception {
+        HikariDataSource primary = ReplicaRoutingConfig.primaryPool(dataSourceProperties, environment);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource replica = ReplicaRoutingConfig.replicaPool(primary, urls.get(i), i, replicaProperties);
+            replicas.put(replica.getPoolName(), replica);
+            awaitReplication(replica, rows);
+        }
+
+        try (ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, Duration.ZERO)) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            readOnly.setReadOnly(true);
+
+            return LoadGenerator.run(clients, duration, () -> readOnly.execute(status -> jdbcTemplate.queryForObject(
+                    "select count(*) from member where name like ?", Long.class,
+                    PREFIX + ThreadLocalRandom.current().nextInt(1, 10) + "%")));
+        }
+    }
+
+    private void awaitReplication(DataSource replica, int rows) throws InterruptedException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(replica);
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (jdbcTemplate.queryForObject("select count(*) from member where name like ?", Long.class, PREFIX + "%") < rows) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("replica did not catch up within 30 seconds");
+            }
+            Thread.sleep(100);
+        }
+    }
+}
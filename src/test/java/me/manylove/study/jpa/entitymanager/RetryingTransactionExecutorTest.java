@@ -0,0 +1,213 @@
+package me.manylove.study.jpa.entitymanager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 낙관적 잠금(@OptimisticLocking DIRTY)과 충돌 시 재시도
+ */
+@SpringBootTest
+class RetryingTransactionExecutorTest {
+    @Autowired
+    private RetryingTransactionExecutor retryingExecutor;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate tx;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final UUID id = UUID.randomUUID();
+
+    @BeforeEach
+    void saveMember() {
+        tx.executeWithoutResult(status -> em.persist(new Member(id, "retry-0")));
+    }
+
+    @AfterEach
+    void deleteMember() {
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+    }
+
+    @Test
+    @DisplayName("조회 후 다른 트랜잭션이 먼저 수정했으면 커밋이 실패한다")
+    void conflict() {
+        assertThatThrownBy(() -> tx.executeWithoutResult(status -> {
+            Member member = em.find(Member.class, id);
+            renameInAnotherTransaction("retry-other");
+            member.setName("retry-mine");
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        String name = tx.execute(status -> em.find(Member.class, id).getName());
+        assertThat(name).isEqualTo("retry-other");
+
+        /**
+         * [ 살펴볼 내용 ]
+         * 1. update member set name=? where id=? and name=? : 조회 시점의 이름이 조건에 들어간다.
+         * 2. 다른 트랜잭션이 이름을 바꿔서 수정된 행이 0 건이므로 덮어쓰지 않고 실패한다.
+         */
+    }
+
+    @Test
+    @DisplayName("충돌하면 새 트랜잭션에서 다시 실행하고, 지표를 남긴다")
+    void retry() {
+        double attempts = meter("transaction.attempts", "test-retry");
+        double conflicts = meter("transaction.conflicts", "test-retry");
+        AtomicInteger calls = new AtomicInteger();
+
+        String name = retryingExecutor.execute("test-retry", status -> {
+            Member member = em.find(Member.class, id);
+            if (calls.incrementAndGet() == 1) {
+                renameInAnotherTransaction("retry-other");
+            }
+            member.setName(member.getName() + "+mine");
+            return member.getName();
+        });
+
+        assertThat(name).isEqualTo("retry-other+mine");
+        assertThat(calls).hasValue(2);
+        assertThat(meter("transaction.attempts", "test-retry")).isEqualTo(attempts + 2);
+        assertThat(meter("transaction.conflicts", "test-retry")).isEqualTo(conflicts + 1);
+    }
+
+    @Test
+    @DisplayName("최대 실행 횟수까지 충돌하면 마지막 예외를 던지고, 트랜잭션 안에서는 사용할 수 없다")
+    void exhausted() {
+        double exhausted = meter("transaction.exhausted", "test-exhausted");
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryingExecutor.execute("test-exhausted", status -> {
+            Member member = em.find(Member.class, id);
+            renameInAnotherTransaction("retry-other-" + calls.incrementAndGet());
+            member.setName("retry-mine");
+            return null;
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(calls).hasValue(5);
+        assertThat(meter("transaction.exhausted", "test-exhausted")).isEqualTo(exhausted + 1);
+        assertThatThrownBy(() -> tx.executeWithoutResult(status -> retryingExecutor.execute("test-nested", s -> null)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("[benchmark] 낙관적 잠금+재시도 vs PESSIMISTIC_WRITE vs last-write-wins (경합 낮음/높음)")
+    void contention() throws Exception {
+        int clients = Integer.getInteger("benchmark.clients", 32);
+        Duration duration = Duration.ofSeconds(Long.getLong("benchmark.seconds", 10L));
+        int[] hotRows = {10_000, 4};
+        // PESSIMISTIC_WRITE 는 2차 캐시를 거치지 않으므로 모두 DB 에서 읽게 맞춘다.
+        Map<String, Object> bypassCache = Collections.singletonMap(
+                "javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+        for (int rows : hotRows) {
+            List<UUID> ids = IntStream.range(0, rows).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+            tx.executeWithoutResult(status -> ids.forEach(rowId -> em.persist(new Member(rowId, "counter-0"))));
+            try {
+                run("optimistic + retry", rows, clients, duration, ids, rowId ->
+                        () -> retryingExecutor.execute("benchmark-optimistic", status -> {
+                            Member member = em.find(Member.class, rowId, bypassCache);
+                            member.setName(increment(member.getName()));
+                            return null;
+                        }));
+                run("PESSIMISTIC_WRITE", rows, clients, duration, ids, rowId ->
+                        () -> tx.execute(status -> {
+                            Member member = em.find(Member.class, rowId, LockModeType.PESSIMISTIC_WRITE, bypassCache);
+                            member.setName(increment(member.getName()));
+                            return null;
+                        }));
+                // 조회한 값으로 조건 없이 덮어쓴다. 그 사이의 다른 수정은 사라진다.
+                // JPQL bulk update 는 호출마다 Member 캐시 영역 전체를 비우므로 JDBC 로 쓴다.
+                run("last-write-wins", rows, clients, duration, ids, rowId ->
+                        () -> tx.execute(status -> {
+                            String name = em.find(Member.class, rowId, bypassCache).getName();
+                            return jdbcTemplate.update("update member set name = ? where id = ?", increment(name), rowId);
+                        }));
+            } finally {
+                tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.id in :ids")
+                        .setParameter("ids", ids)
+                        .executeUpdate());
+            }
+        }
+    }
+
+    /**
+     * 모든 행의 카운터를 0 으로 되돌리고 부하를 준 뒤, 성공한 수정 수와 카운터 합계를 비교해서 잃어버린 수정(lost update)을 센다.
+     */
+    private void run(String label, int rows, int clients, Duration duration, List<UUID> ids,
+                     Function<UUID, Callable<?>> operation) throws Exception {
+        tx.executeWithoutResult(status -> em.createQuery("update Member m set m.name = 'counter-0' where m.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate());
+        em.getEntityManagerFactory().getCache().evict(Member.class);
+        double conflicts = meter("transaction.conflicts", "benchmark-optimistic");
+        AtomicLong succeeded = new AtomicLong();
+
+        LoadGenerator.Result result = LoadGenerator.run(clients, duration, () -> {
+            operation.apply(ids.get(ThreadLocalRandom.current().nextInt(ids.size()))).call();
+            return succeeded.incrementAndGet();
+        });
+
+        em.getEntityManagerFactory().getCache().evict(Member.class);
+        long total = tx.execute(status -> em.createQuery("select m.name from Member m where m.id in :ids", String.class)
+                        .setParameter("ids", ids)
+                        .getResultList())
+                .stream()
+                .mapToLong(name -> Long.parseLong(name.substring("counter-".length())))
+                .sum();
+        System.out.printf("=== rows %,d, %-18s : %s, lost updates %,d, conflicts %,.0f ===%n", rows, label, result,
+                succeeded.get() - total, meter("transaction.conflicts", "benchmark-optimistic") - conflicts);
+    }
+
+    private static String increment(String counter) {
+        return "counter-" + (Long.parseLong(counter.substring("counter-".length())) + 1);
+    }
+
+    private void renameInAnotherTransaction(String name) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.executeWithoutResult(status -> em.find(Member.class, id).setName(name));
+    }
+
+    private double meter(String name, String operation) {
+        Counter counter = meterRegistry.find(name).tag("operation", operation).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,133 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 샤딩 : 이름이 다른 H2 메모리 DB 2개를 샤드로 두고 ShardedMemberSession 과 scatter-gather 조회를 확인한다.
+ *
+ * [ 살펴볼 내용 ]
+ * 샤드마다 EntityManager 가 따로 있어도, 같은 id 는 항상 같은 샤드의 EntityManager 가 관리하므로
+ * 1차 캐시와 쓰기 지연은 샤드가 하나일 때와 같이 동작한다.
+ */
+class ShardedMemberSessionTest {
+    private final List<DataSource> dataSources = Arrays.asList(node("shard-a"), node("shard-b"));
+    private final MemberShards shards = new MemberShards(dataSources, settings(), 2);
+
+    @AfterEach
+    void close() {
+        shards.close();
+    }
+
+    @Test
+    @DisplayName("한 세션 안에서 같은 id 는 같은 객체를 반환한다")
+    void identity() {
+        UUID id = shards.inTransaction(session -> {
+            Member member = new Member(null, "identity");
+            session.persist(member);
+            return member.getId();
+        });
+
+        try (ShardedMemberSession session = shards.openSession()) {
+            Member first = session.find(id);
+            Member second = session.find(id);
+
+            assertThat(first).isSameAs(second);
+            assertThat(session.contains(first)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("커밋 전에는 다른 세션에서 보이지 않고, 커밋하면 보인다")
+    void writeBehind() {
+        try (ShardedMemberSession writer = shards.openSession()) {
+            Member member = new Member(UUID.randomUUID(), "write-behind");
+            writer.persist(member);
+
+            try (ShardedMemberSession reader = shards.openSession()) {
+                assertThat(reader.find(member.getId())).isNull();
+            }
+
+            writer.commit();
+
+            try (ShardedMemberSession reader = shards.openSession()) {
+                assertThat(reader.find(member.getId()).getName()).isEqualTo("write-behind");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Member 는 id 로 고른 샤드 하나에만 저장되고, 두 샤드 모두 사용된다")
+    void placement() {
+        List<UUID> ids = shards.inTransaction(session -> {
+            List<UUID> saved = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Member member = new Member(null, "placement-" + i);
+                session.persist(member);
+                saved.add(member.getId());
+            }
+            return saved;
+        });
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int index = shard;
+            List<UUID> stored = new JdbcTemplate(dataSources.get(shard)).queryForList("select id from member", UUID.class);
+            List<UUID> expected = ids.stream().filter(id -> shards.shardOf(id) == index).collect(Collectors.toList());
+
+            assertThat(stored).isNotEmpty().containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("findPage 는 모든 샤드의 Member 를 이름순으로 합쳐서 페이지를 나눈다")
+    void findPage() {
+        List<String> names = new ArrayList<>();
+        shards.inTransaction(session -> {
+            for (int i = 0; i < 25; i++) {
+                String name = String.format("page-%02d", i);
+                session.persist(new Member(null, name));
+                names.add(name);
+            }
+            session.persist(new Member(null, null));
+            return null;
+        });
+
+        List<MemberView> views = new ArrayList<>();
+        String after = null;
+        do {
+            MemberPage page = shards.findPage(after, 7);
+            views.addAll(page.getContent());
+            after = page.getNext();
+        } while (after != null);
+
+        assertThat(views).hasSize(26);
+        assertThat(views.subList(0, 25)).extracting(MemberView::getName).containsExactlyElementsOf(names);
+        assertThat(views.get(25).getName()).isNull();
+    }
+
+    private static DataSource node(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    private static Map<String, Object> settings() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AvailableSettings.DIALECT, "org.hibernate.dialect.H2Dialect");
+        settings.put(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        return settings;
+    }
+}
@@ -0,0 +1,75 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 샤드 수(1, 2, 4)에 따른 쓰기 처리량과 p99.
+ *
+ * docker/shards/docker-compose.yml 의 PostgreSQL 4대가 필요하다.
+ *   docker compose -f docker/shards/docker-compose.yml up -d
+ *   ./gradlew benchmark --tests '*ShardedWriteLoadTest'
+ * 요청 하나는 한 세션에서 Member 10건을 저장하고 커밋한다. 10건은 샤드 수만큼 나뉘므로 샤드가 많을수록 커밋하는 트랜잭션 수도 늘어난다.
+ * 인스턴스들이 같은 호스트의 CPU 와 디스크를 나눠 쓰므로, 호스트가 포화되면 샤드를 늘려도 처리량이 늘지 않는다.
+ */
+@SpringBootTest
+@ActiveProfiles("shards")
+@Tag("benchmark")
+@Tag("postgresql")
+class ShardedWriteLoadTest {
+    private static final String PREFIX = "shard-load-";
+    private static final int[] SHARD_COUNTS = {1, 2, 4};
+    private static final int MEMBERS_PER_REQUEST = 10;
+
+    @Autowired
+    private MemberShardingProperties shardingProperties;
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    @Autowired
+    private JpaProperties jpaProperties;
+    @Autowired
+    private Environment environment;
+
+    @Test
+    @DisplayName("[benchmark] 샤드 수별 쓰기 처리량, p99")
+    void shards() throws Exception {
+        int clients = Integer.getInteger("benchmark.clients", 64);
+        Duration duration = Duration.ofSeconds(Long.getLong("benchmark.seconds", 10L));
+        List<String> urls = shardingProperties.getUrls();
+
+        for (int shardCount : SHARD_COUNTS) {
+            if (shardCount > urls.size()) {
+                break;
+            }
+            List<DataSource> dataSources = MemberShardingConfig.shardPools(
+                    ReplicaRoutingConfig.primaryConfig(dataSourceProperties, environment), urls.subList(0, shardCount));
+            try (MemberShards shards = new MemberShards(dataSources,
+                    MemberShardingConfig.hibernateSettings(jpaProperties), shardingProperties.getScatterThreads())) {
+                try {
+                    LoadGenerator.Result result = LoadGenerator.run(clients, duration, () -> shards.inTransaction(session -> {
+                        for (int i = 0; i < MEMBERS_PER_REQUEST; i++) {
+                            session.persist(new Member(null, PREFIX + i));
+                        }
+                        return null;
+                    }));
+                    System.out.printf("=== shards %d, clients %d : %s ===%n", shardCount, clients, result);
+                } finally {
+                    dataSources.forEach(dataSource ->
+                            new JdbcTemplate(dataSource).update("delete from member where name like ?", PREFIX + "%"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시작 시간 : 별도 JVM 으로 애플리케이션을 띄우고, 첫 요청(GET /members/{id})이 성공하기까지의 시간을 잰다.
+ *
+ *   ./gradlew benchmark --tests '*StartupTimeBenchmarkTest' [-Dbenchmark.runs=5] [-PtestProfiles=local]
+ *
+ * 테스트 JVM 의 spring.profiles.active(-PtestProfiles)를 띄우는 JVM 에도 넘기므로, local 이면 DB 서버 없이 잰다.
+ */
+@Tag("benchmark")
+class StartupTimeBenchmarkTest {
+    private static final String YOUNG1000_ID = "91905d95-5161-4246-805e-d50960bef07b";
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    @Test
+    @DisplayName("[benchmark] 기본 vs fast-start 프로필의 첫 요청까지 걸리는 시간")
+    void timeToFirstRequest() throws Exception {
+        int runs = Integer.getInteger("benchmark.runs", 5);
+        measure("default", runs, new String[0], profiles());
+        measure("fast-start", runs, new String[0], profiles("fast-start"));
+        // JIT 을 C1 까지만 사용하면 시작은 빨라지지만 최대 처리량은 줄어든다.
+        measure("fast-start + C1", runs, new String[]{"-XX:TieredStopAtLevel=1"}, profiles("fast-start"));
+    }
+
+    /**
+     * 테스트 JVM 의 활성 프로필에 extra 를 더한 --spring.profiles.active 인자. 둘 다 없으면 인자 없음
+     */
+    private String[] profiles(String... extra) {
+        List<String> profiles = new ArrayList<>();
+        String active = System.getProperty("spring.profiles.active", "");
+        if (!active.trim().isEmpty()) {
+            profiles.add(active.trim());
+        }
+        profiles.addAll(Arrays.asList(extra));
+        return profiles.isEmpty() ? new String[0] : new String[]{"--spring.profiles.active=" + String.join(",", profiles)};
+    }
+
+    private void measure(String label, int runs, String[] jvmOptions, String[] arguments) throws Exception {
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            millis[run] = timeToFirstRequest(jvmOptions, arguments);
+        }
+        Arrays.sort(millis);
+        System.out.printf("=== %-16s : median %,d ms, min %,d ms, max %,d ms (runs %d) ===%n",
+                label, millis[runs / 2], millis[0], millis[runs - 1], runs);
+    }
+
+    private long timeToFirstRequest(String[] jvmOptions, String[] arguments) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-cp");
+        command.add(System.getProperty("benchmark.classpath", System.getProperty("java.class.path")));
+        command.add(EntitymanagerApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.addAll(Arrays.asList(arguments));
+
+        URL url = new URL("http://localhost:" + port + "/members/" + YOUNG1000_ID);
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "startup-benchmark.log"))
+                .start();
+        try {
+            while (!succeeded(url)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue());
+                }
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > TIMEOUT_MILLIS) {
+                    throw new IllegalStateException("Application did not answer within " + TIMEOUT_MILLIS + " ms");
+                }
+                Thread.sleep(10);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private boolean succeeded(URL url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(100);
+            int status = connection.getResponseCode();
+            connection.getInputStream().close();
+            return status == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 시간 순서 UUID 생성기 (DB 없이 실행 가능)
+ */
+class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    @DisplayName("version 7, RFC 4122 variant 로 생성된다")
+    void versionAndVariant() {
+        UUID id = TimeOrderedUuidGenerator.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("상위 48bit 는 생성 시각(millis)이다")
+    void timestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedUuidGenerator.next();
+
+        assertThat(id.getMostSignificantBits() >>> 16).isGreaterThanOrEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("연속으로 생성한 값은 DB(uuid 타입)의 정렬 순서대로 증가한다")
+    void monotonic() {
+        UUID previous = TimeOrderedUuidGenerator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID current = TimeOrderedUuidGenerator.next();
+            // PostgreSQL uuid 는 byte 단위 unsigned 비교이므로 상위 64bit 를 unsigned 로 비교한다.
+            assertThat(Long.compareUnsigned(current.getMostSignificantBits(), previous.getMostSignificantBits()))
+                    .isPositive();
+            previous = current;
+        }
+    }
+
+    @Test
+    @DisplayName("여러 스레드에서 동시에 생성해도 중복이 없다")
+    void concurrent() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(TimeOrderedUuidGenerator.next());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+}
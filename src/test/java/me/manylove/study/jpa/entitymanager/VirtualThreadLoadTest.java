@@ -0,0 +1,66 @@
+package me.manylove.study.jpa.entitymanager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 스레드-요청 모델(Tomcat 스레드 풀) vs 가상 스레드 : 동시 사용자 1,000명 이상에서 처리량과 p99 지연시간.
+ *
+ * 같은 애플리케이션을 member.threads.virtual 만 바꿔 차례로 띄우고 GET /members/{id} 를 호출한다.
+ *   ./gradlew benchmark --tests '*VirtualThreadLoadTest' -PbenchmarkJavaVersion=21 [-PtracePinnedThreads]
+ * -PtracePinnedThreads 를 주면 carrier thread 를 붙잡은 채 블로킹된 위치가 표준 출력에 찍힌다.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadTest {
+    private static final String YOUNG1000_ID = "91905d95-5161-4246-805e-d50960bef07b";
+
+    @Test
+    @DisplayName("[benchmark] platform thread vs virtual thread 요청 처리")
+    void compare() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "Java 21 이상에서 실행해야 한다.");
+        int clients = Integer.getInteger("benchmark.clients", 1_000);
+        Duration duration = Duration.ofSeconds(Long.getLong("benchmark.seconds", 20L));
+        // HttpURLConnection 이 keep-alive 로 재사용하는 커넥션 수 (기본 5)
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                    new SpringApplicationBuilder(EntitymanagerApplication.class)
+                            .properties("server.port=0",
+                                    "member.threads.virtual=" + virtual,
+                                    "spring.datasource.hikari.connection-timeout=30000",
+                                    "logging.level.org.hibernate.SQL=info",
+                                    "logging.level.org.hibernate.type=info")
+                            .run()) {
+                URL url = new URL("http://localhost:" + context.getWebServer().getPort() + "/members/" + YOUNG1000_ID);
+                get(url);   // warm up
+
+                LoadGenerator.Result result = LoadGenerator.run(clients, duration, () -> get(url));
+                System.out.printf("=== %s, clients %,d : %s ===%n", virtual ? "virtual " : "platform", clients, result);
+            }
+        }
+    }
+
+    private int get(URL url) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream body = connection.getInputStream()) {
+            while (body.read() != -1) {
+                // keep-alive 로 재사용하려면 응답 본문을 끝까지 읽어야 한다.
+            }
+        }
+        assertThat(status).isEqualTo(200);
+        return status;
+    }
+}